@@ -2,40 +2,1090 @@ import javax.swing.*;
 import javax.swing.border.Border;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import javax.swing.table.TableColumnModel;
 import java.awt.*;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 
 public class StudentGradeManagerGUI
 {
 
-    // Data model for a student
-    static class Student
+    // Row-oriented access to student data, shared by the table model and the report
+    interface StudentStore
     {
-        String name;
-        double marks;
+        int size();
+        String name(int row);
+        double marks(int row);
+        int add(String name, double marks);
+        void setName(int row, String name);
+        void setMarks(int row, double marks);
+        void remove(int row);
+        void clear();
 
-        Student(String name, double marks)
+        default boolean isEmpty()
+        {
+            return size() == 0;
+        }
+    }
+
+    /**
+     * Interned names: each distinct name is stored once and referred to by an int id.
+     * Shared by the store and the statistics so neither keeps its own copy.
+     */
+    static class NamePool
+    {
+        private final ArrayList<String> names = new ArrayList<>();
+        private final HashMap<String, Integer> ids = new HashMap<>();
+
+        int intern(String name)
+        {
+            Integer id = ids.get(name);
+            if (id == null)
+            {
+                id = names.size();
+                names.add(name);
+                ids.put(name, id);
+            }
+            return id;
+        }
+
+        /** The id of a name already interned, or -1. */
+        int idOf(String name)
+        {
+            Integer id = ids.get(name);
+            return id == null ? -1 : id;
+        }
+
+        String name(int id)
+        {
+            return names.get(id);
+        }
+
+        void clear()
+        {
+            names.clear();
+            ids.clear();
+        }
+    }
+
+    /**
+     * Column-per-field student store. Marks live in primitive double chunks and names
+     * are interned into a string pool referenced by int id, so a large cohort costs
+     * a few bytes per row instead of one object per student.
+     */
+    static class ColumnarStudentStore implements StudentStore
+    {
+        private static final int CHUNK_BITS = 14;
+        private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+        private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+        private double[][] marksChunks = new double[0][];
+        private int[][] nameChunks = new int[0][];
+        private int size;
+
+        private final NamePool namePool;
+
+        ColumnarStudentStore()
+        {
+            this(new NamePool());
+        }
+
+        ColumnarStudentStore(NamePool namePool)
+        {
+            this.namePool = namePool;
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public String name(int row)
+        {
+            checkRow(row);
+            return namePool.name(nameChunks[row >>> CHUNK_BITS][row & CHUNK_MASK]);
+        }
+
+        @Override
+        public double marks(int row)
+        {
+            checkRow(row);
+            return marksChunks[row >>> CHUNK_BITS][row & CHUNK_MASK];
+        }
+
+        @Override
+        public int add(String name, double marks)
+        {
+            int chunk = size >>> CHUNK_BITS;
+            if (chunk == marksChunks.length)
+            {
+                // Grow by whole chunks so existing rows are never copied
+                marksChunks = Arrays.copyOf(marksChunks, chunk + 1);
+                nameChunks = Arrays.copyOf(nameChunks, chunk + 1);
+                marksChunks[chunk] = new double[CHUNK_SIZE];
+                nameChunks[chunk] = new int[CHUNK_SIZE];
+            }
+            marksChunks[chunk][size & CHUNK_MASK] = marks;
+            nameChunks[chunk][size & CHUNK_MASK] = namePool.intern(name);
+            return size++;
+        }
+
+        @Override
+        public void setName(int row, String name)
+        {
+            checkRow(row);
+            nameChunks[row >>> CHUNK_BITS][row & CHUNK_MASK] = namePool.intern(name);
+        }
+
+        @Override
+        public void setMarks(int row, double marks)
+        {
+            checkRow(row);
+            marksChunks[row >>> CHUNK_BITS][row & CHUNK_MASK] = marks;
+        }
+
+        @Override
+        public void remove(int row)
+        {
+            checkRow(row);
+            // Shift later rows up one place to keep table order
+            for (int i = row; i < size - 1; i++)
+            {
+                int next = i + 1;
+                marksChunks[i >>> CHUNK_BITS][i & CHUNK_MASK] = marksChunks[next >>> CHUNK_BITS][next & CHUNK_MASK];
+                nameChunks[i >>> CHUNK_BITS][i & CHUNK_MASK] = nameChunks[next >>> CHUNK_BITS][next & CHUNK_MASK];
+            }
+            size--;
+        }
+
+        @Override
+        public void clear()
+        {
+            marksChunks = new double[0][];
+            nameChunks = new int[0][];
+            size = 0;
+            namePool.clear();
+        }
+
+        private void checkRow(int row)
+        {
+            if (row < 0 || row >= size)
+            {
+                throw new IndexOutOfBoundsException("Row " + row + " out of range for size " + size);
+            }
+        }
+    }
+
+    /**
+     * Fenwick tree of student counts per fixed-point mark (hundredths of a mark),
+     * giving rank, percentile and median in O(log buckets) without sorting.
+     */
+    static class MarksIndex
+    {
+        static final int SCALE = 100;
+        static final int BUCKETS = 100 * SCALE + 1;
+
+        private final int[] tree = new int[BUCKETS + 1]; // 1-based
+        private int count;
+
+        /**
+         * The hundredth of a mark the marks fall in, rounded down so a mark just under a
+         * cut-off never lands in the cut-off's bucket. The epsilon only absorbs binary
+         * representation error, e.g. 0.29 * 100 = 28.999999999999996.
+         */
+        static int bucket(double marks)
+        {
+            return (int) Math.floor(marks * SCALE + 1e-9);
+        }
+
+        void add(double marks, int delta)
+        {
+            count += delta;
+            for (int i = bucket(marks) + 1; i <= BUCKETS; i += i & -i)
+            {
+                tree[i] += delta;
+            }
+        }
+
+        void clear()
+        {
+            Arrays.fill(tree, 0);
+            count = 0;
+        }
+
+        int count()
+        {
+            return count;
+        }
+
+        /** Number of students with marks at or below the given bucket. */
+        private int countAtOrBelow(int bucket)
+        {
+            int sum = 0;
+            for (int i = bucket + 1; i > 0; i -= i & -i)
+            {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        /** Number of students in buckets lo..hi inclusive. */
+        int countBetween(int lo, int hi)
+        {
+            if (hi < lo) return 0;
+            return countAtOrBelow(hi) - (lo == 0 ? 0 : countAtOrBelow(lo - 1));
+        }
+
+        /** 1-based competition rank: one more than the number of students scoring strictly higher. */
+        int rank(double marks)
+        {
+            return count - countAtOrBelow(bucket(marks)) + 1;
+        }
+
+        /** Percentage of the class scoring at or below the given marks. */
+        double percentileRank(double marks)
+        {
+            return count == 0 ? 0 : 100.0 * countAtOrBelow(bucket(marks)) / count;
+        }
+
+        /** Marks of the k-th lowest student (1-based), found by walking down the tree. */
+        double select(int k)
+        {
+            return (double) selectBucket(k) / SCALE;
+        }
+
+        /** Bucket holding the k-th lowest student (1-based). */
+        int selectBucket(int k)
+        {
+            int pos = 0;
+            for (int step = Integer.highestOneBit(BUCKETS); step > 0; step >>= 1)
+            {
+                int next = pos + step;
+                if (next <= BUCKETS && tree[next] < k)
+                {
+                    pos = next;
+                    k -= tree[next];
+                }
+            }
+            return pos;
+        }
+
+        /** Nearest-rank percentile, e.g. 90 for the mark 90% of the class is at or below. */
+        double percentile(double p)
+        {
+            return select(Math.max(1, (int) Math.ceil(p / 100 * count)));
+        }
+
+        double median()
+        {
+            if (count % 2 == 1) return select(count / 2 + 1);
+            return (select(count / 2) + select(count / 2 + 1)) / 2;
+        }
+    }
+
+    /**
+     * Who is in each MarksIndex bucket, grouped by exact marks. Each group keeps its
+     * students as name id -> count in an open-addressed table of packed longs, so
+     * adding or removing a student is O(1) with nothing boxed, and a report reads
+     * only the groups at the marks it shows.
+     */
+    static class BucketMembers
+    {
+        private final MarksGroup[][] groups = new MarksGroup[MarksIndex.BUCKETS][];
+
+        void add(double marks, int nameId)
+        {
+            int bucket = MarksIndex.bucket(marks);
+            MarksGroup group = group(bucket, marks);
+            if (group == null)
+            {
+                MarksGroup[] inBucket = groups[bucket] == null ? new MarksGroup[1] : Arrays.copyOf(groups[bucket], groups[bucket].length + 1);
+                group = inBucket[inBucket.length - 1] = new MarksGroup(marks);
+                groups[bucket] = inBucket;
+            }
+            group.add(nameId);
+        }
+
+        void remove(double marks, int nameId)
+        {
+            int bucket = MarksIndex.bucket(marks);
+            MarksGroup group = group(bucket, marks);
+            if (group == null || !group.remove(nameId) || group.count > 0) return;
+            MarksGroup[] inBucket = groups[bucket];
+            if (inBucket.length == 1)
+            {
+                groups[bucket] = null;
+                return;
+            }
+            MarksGroup[] rest = new MarksGroup[inBucket.length - 1];
+            for (int i = 0, j = 0; i < inBucket.length; i++)
+            {
+                if (inBucket[i] != group) rest[j++] = inBucket[i];
+            }
+            groups[bucket] = rest;
+        }
+
+        void clear()
+        {
+            Arrays.fill(groups, null);
+        }
+
+        /** The group with the highest marks in the bucket strictly below {@code below}, or null. */
+        MarksGroup highestBelow(int bucket, double below)
+        {
+            MarksGroup best = null;
+            for (MarksGroup group : groups[bucket] == null ? new MarksGroup[0] : groups[bucket])
+            {
+                if (group.marks < below && (best == null || group.marks > best.marks)) best = group;
+            }
+            return best;
+        }
+
+        /** The group with the lowest marks in the bucket, or null if it is empty. */
+        MarksGroup lowest(int bucket)
+        {
+            MarksGroup best = null;
+            for (MarksGroup group : groups[bucket] == null ? new MarksGroup[0] : groups[bucket])
+            {
+                if (best == null || group.marks < best.marks) best = group;
+            }
+            return best;
+        }
+
+        private MarksGroup group(int bucket, double marks)
+        {
+            if (groups[bucket] == null) return null;
+            for (MarksGroup group : groups[bucket])
+            {
+                if (group.marks == marks) return group;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The students sharing one exact mark. Each slot holds name id + 1 in the high
+     * half and that name's count in the low half, so 0 marks an empty slot.
+     */
+    static class MarksGroup
+    {
+        private static final int MIN_CAPACITY = 2;
+
+        final double marks;
+        private int count;
+        private int used;
+        private long[] slots = new long[MIN_CAPACITY];
+
+        MarksGroup(double marks)
         {
-            this.name = name;
             this.marks = marks;
         }
+
+        int count()
+        {
+            return count;
+        }
+
+        /** Passes on the name id of each student in the group, once per student, until {@code out} returns false. */
+        void forEachId(IntPredicate out)
+        {
+            for (long slot : slots)
+            {
+                for (int n = (int) slot; n > 0; n--)
+                {
+                    if (!out.test((int) (slot >>> 32) - 1)) return;
+                }
+            }
+        }
+
+        void add(int nameId)
+        {
+            long key = key(nameId);
+            int i = find(nameId);
+            if (slots[i] == 0)
+            {
+                slots[i] = key | 1;
+                if (++used * 4 > slots.length * 3) resize(slots.length * 2);
+            }
+            else
+            {
+                slots[i]++;
+            }
+            count++;
+        }
+
+        boolean remove(int nameId)
+        {
+            int i = find(nameId);
+            if (slots[i] == 0) return false;
+            count--;
+            if ((int) --slots[i] == 0)
+            {
+                deleteSlot(i);
+                used--;
+            }
+            return true;
+        }
+
+        private static long key(int nameId)
+        {
+            return (long) (nameId + 1) << 32;
+        }
+
+        private static int home(int nameId, int mask)
+        {
+            int h = nameId * 0x9E3779B9;
+            return (h ^ h >>> 16) & mask;
+        }
+
+        // Slot holding the name, or the empty slot where it would go
+        private int find(int nameId)
+        {
+            int mask = slots.length - 1;
+            long key = key(nameId);
+            int i = home(nameId, mask);
+            while (slots[i] != 0 && (slots[i] & ~0xFFFF_FFFFL) != key)
+            {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        // Backward-shift deletion keeps every probe run unbroken
+        private void deleteSlot(int hole)
+        {
+            int mask = slots.length - 1;
+            for (int i = (hole + 1) & mask; slots[i] != 0; i = (i + 1) & mask)
+            {
+                int home = home((int) (slots[i] >>> 32) - 1, mask);
+                if (((i - home) & mask) >= ((i - hole) & mask))
+                {
+                    slots[hole] = slots[i];
+                    hole = i;
+                }
+            }
+            slots[hole] = 0;
+        }
+
+        private void resize(int capacity)
+        {
+            long[] old = slots;
+            slots = new long[capacity];
+            for (long slot : old)
+            {
+                if (slot != 0) slots[find((int) (slot >>> 32) - 1)] = slot;
+            }
+        }
+    }
+
+    /**
+     * A named set of grade bands, compiled into a lookup table indexed by
+     * fixed-point marks so grading a row is one array read instead of a branch chain.
+     * Cut-offs are whole hundredths of a mark, so each one starts a MarksIndex bucket
+     * and the histogram can be counted from the index; marks compare against the
+     * cut-offs exactly, as the original branch chain did.
+     */
+    static class GradingScheme
+    {
+        static final String CONFIG_FILE = "grading-schemes.properties";
+        static final GradingScheme DEFAULT = new GradingScheme("Default",
+                new String[]{"O", "E", "A", "B", "C", "D", "F"},
+                new double[]{90, 80, 70, 60, 50, 40, 0});
+
+        final String name;
+        final String[] letters;
+        final double[] cutoffs; // minimum marks for each letter, highest band first
+        private final byte[] bandByBucket = new byte[MarksIndex.BUCKETS];
+
+        GradingScheme(String name, String[] letters, double[] cutoffs)
+        {
+            if (letters.length == 0 || letters.length != cutoffs.length || letters.length > Byte.MAX_VALUE)
+            {
+                throw new IllegalArgumentException("Scheme " + name + " needs between 1 and 127 bands, each with a letter and a cut-off.");
+            }
+            for (int i = 1; i < cutoffs.length; i++)
+            {
+                if (cutoffs[i] >= cutoffs[i - 1])
+                {
+                    throw new IllegalArgumentException("Scheme " + name + " cut-offs must be listed from highest to lowest.");
+                }
+            }
+            if (cutoffs[cutoffs.length - 1] != 0)
+            {
+                throw new IllegalArgumentException("Scheme " + name + " must end with a band starting at 0.");
+            }
+            for (double cutoff : cutoffs)
+            {
+                if (Math.abs(cutoff * MarksIndex.SCALE - Math.rint(cutoff * MarksIndex.SCALE)) > 1e-6)
+                {
+                    throw new IllegalArgumentException("Scheme " + name + " cut-off " + cutoff + " must be a whole hundredth of a mark.");
+                }
+            }
+            this.name = name;
+            this.letters = letters;
+            this.cutoffs = cutoffs;
+
+            // Fill the table from the lowest band upwards
+            int bucket = 0;
+            for (int band = cutoffs.length - 1; band >= 0; band--)
+            {
+                int end = band == 0 ? MarksIndex.BUCKETS : Math.min(MarksIndex.BUCKETS, MarksIndex.bucket(cutoffs[band - 1]));
+                for (; bucket < end; bucket++)
+                {
+                    bandByBucket[bucket] = (byte) band;
+                }
+            }
+        }
+
+        int band(double marks)
+        {
+            int band = bandByBucket[MarksIndex.bucket(marks)];
+            // Only marks within the bucket epsilon below a cut-off need the exact comparison
+            return marks < cutoffs[band] ? band + 1 : band;
+        }
+
+        String grade(double marks)
+        {
+            return letters[band(marks)];
+        }
+
+        /** First bucket graded into the band. */
+        int lowestBucket(int band)
+        {
+            return MarksIndex.bucket(cutoffs[band]);
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+
+        /**
+         * Loads schemes from a properties file of entries such as
+         * {@code scheme.Strict = A:85,B:70,C:55,F:0}. The built-in default always comes first.
+         */
+        static List<GradingScheme> load(Path path) throws IOException
+        {
+            List<GradingScheme> schemes = new ArrayList<>();
+            schemes.add(DEFAULT);
+            if (!Files.exists(path))
+            {
+                return schemes;
+            }
+            Properties props = new Properties();
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8))
+            {
+                props.load(reader);
+            }
+            for (String key : new TreeSet<>(props.stringPropertyNames()))
+            {
+                if (!key.startsWith("scheme.")) continue;
+                String[] bands = props.getProperty(key).split(",");
+                String[] letters = new String[bands.length];
+                double[] cutoffs = new double[bands.length];
+                for (int i = 0; i < bands.length; i++)
+                {
+                    String[] parts = bands[i].split(":");
+                    if (parts.length != 2)
+                    {
+                        throw new IllegalArgumentException("Bad band '" + bands[i].trim() + "' in " + key + "; expected LETTER:MIN.");
+                    }
+                    letters[i] = parts[0].trim();
+                    cutoffs[i] = Double.parseDouble(parts[1].trim());
+                }
+                schemes.add(new GradingScheme(key.substring("scheme.".length()), letters, cutoffs));
+            }
+            return schemes;
+        }
+    }
+
+    /**
+     * Class statistics kept up to date on every add, edit and delete, so a report
+     * never has to rescan the store. Variance uses Welford's method; rank, median and
+     * the extremes come from the marks index, and performers from the members of the
+     * one or few buckets a report reads, so deletions never leave stale names behind.
+     */
+    static class GradeStatistics
+    {
+        private int count;
+        private double sum;
+        private double mean;
+        private double m2; // sum of squared distances from the mean
+        private GradingScheme scheme = GradingScheme.DEFAULT;
+        private int[] gradeCounts = new int[scheme.letters.length];
+        private final MarksIndex marksIndex = new MarksIndex();
+        private final BucketMembers members = new BucketMembers();
+        private final NamePool names;
+        private final boolean ownsNames; // a shared pool is reset by the store, never from here
+
+        GradeStatistics()
+        {
+            this(new NamePool(), true);
+        }
+
+        /** Statistics naming students through a pool shared with the store. */
+        GradeStatistics(NamePool names)
+        {
+            this(names, false);
+        }
+
+        private GradeStatistics(NamePool names, boolean ownsNames)
+        {
+            this.names = names;
+            this.ownsNames = ownsNames;
+        }
+
+        void add(String name, double marks)
+        {
+            count++;
+            sum += marks;
+            double delta = marks - mean;
+            mean += delta / count;
+            m2 += delta * (marks - mean);
+            gradeCounts[scheme.band(marks)]++;
+            members.add(marks, names.intern(name));
+            marksIndex.add(marks, 1);
+        }
+
+        void remove(String name, double marks)
+        {
+            if (count <= 1)
+            {
+                reset();
+                return;
+            }
+            double oldMean = mean;
+            mean = (count * mean - marks) / (count - 1);
+            m2 = Math.max(0, m2 - (marks - oldMean) * (marks - mean));
+            count--;
+            sum -= marks;
+            gradeCounts[scheme.band(marks)]--;
+            members.remove(marks, names.idOf(name));
+            marksIndex.add(marks, -1);
+        }
+
+        void clear()
+        {
+            reset();
+            if (ownsNames)
+            {
+                names.clear();
+            }
+        }
+
+        // Empties the statistics' own counters and tables; the name pool may still be in use by the store
+        private void reset()
+        {
+            count = 0;
+            sum = 0;
+            mean = 0;
+            m2 = 0;
+            Arrays.fill(gradeCounts, 0);
+            marksIndex.clear();
+            members.clear();
+        }
+
+        int count() { return count; }
+        double sum() { return sum; }
+        double average() { return mean; }
+        double variance() { return count == 0 ? 0 : m2 / count; }
+        double standardDeviation() { return Math.sqrt(variance()); }
+        double highest() { return extreme(true).marks; }
+        double lowest() { return extreme(false).marks; }
+        List<String> topPerformers() { return namesAt(true); }
+        List<String> bottomPerformers() { return namesAt(false); }
+        int gradeCount(int band) { return gradeCounts[band]; }
+        GradingScheme scheme() { return scheme; }
+
+        /** Switches schemes and rebuilds the histogram from the marks index, one range count per band. */
+        void applyScheme(GradingScheme newScheme)
+        {
+            scheme = newScheme;
+            gradeCounts = new int[newScheme.letters.length];
+            int upper = MarksIndex.BUCKETS - 1;
+            for (int band = 0; band < gradeCounts.length; band++)
+            {
+                int lower = newScheme.lowestBucket(band);
+                gradeCounts[band] = marksIndex.countBetween(lower, upper);
+                upper = lower - 1;
+            }
+        }
+        int rank(double marks) { return marksIndex.rank(marks); }
+        double percentileRank(double marks) { return marksIndex.percentileRank(marks); }
+        double percentile(double p) { return marksIndex.percentile(p); }
+        double median() { return marksIndex.median(); }
+
+        /** The k highest-scoring students as "name (marks)", best first. */
+        List<String> topK(int k)
+        {
+            List<String> top = new ArrayList<>(k);
+            int seen = 0;
+            // Jump straight from one occupied bucket to the next one down, then through its groups
+            while (top.size() < k && seen < count)
+            {
+                int bucket = marksIndex.selectBucket(count - seen);
+                for (MarksGroup group = members.highestBelow(bucket, Double.POSITIVE_INFINITY); group != null && top.size() < k;
+                     group = members.highestBelow(bucket, group.marks))
+                {
+                    // Same rounding as "%.2f", without a Formatter per entry
+                    String marks = BigDecimal.valueOf(group.marks).setScale(2, RoundingMode.HALF_UP).toPlainString();
+                    group.forEachId(id -> top.add(names.name(id) + " (" + marks + ")") && top.size() < k);
+                }
+                seen += marksIndex.countBetween(bucket, bucket);
+            }
+            return top;
+        }
+
+        // The students on the highest or lowest marks, from the top or bottom occupied bucket
+        private MarksGroup extreme(boolean highest)
+        {
+            return highest ? members.highestBelow(marksIndex.selectBucket(count), Double.POSITIVE_INFINITY)
+                    : members.lowest(marksIndex.selectBucket(1));
+        }
+
+        private List<String> namesAt(boolean highest)
+        {
+            MarksGroup group = extreme(highest);
+            List<String> found = new ArrayList<>(group.count());
+            group.forEachId(id -> found.add(names.name(id)));
+            return found;
+        }
+    }
+
+    /**
+     * Streaming CSV import/export for mark sheets. Imports map the file in chunks
+     * cut at line boundaries and parse the chunks in parallel; rows keep file order.
+     * Rows are Name,Marks with an optional trailing Grade column, so an exported file
+     * imports unchanged. Names containing commas or quotes are written and read in quoted form.
+     */
+    static class StudentCsv
+    {
+        static final int CHUNK_BYTES = 8 << 20;
+        static final int MAX_REPORTED_ERRORS = 10;
+
+        // Parsed rows of one import, in file order
+        static class ImportResult
+        {
+            final ArrayList<String> names = new ArrayList<>();
+            double[] marks = new double[0];
+            int rejected;
+            final ArrayList<String> errors = new ArrayList<>();
+        }
+
+        // Rows parsed from a single chunk; line numbers are chunk-relative until merged
+        private static class ChunkResult
+        {
+            final ArrayList<String> names = new ArrayList<>();
+            double[] marks = new double[1024];
+            int lines;
+            int rejected;
+            final ArrayList<int[]> errorLines = new ArrayList<>();
+            final ArrayList<String> errorMessages = new ArrayList<>();
+        }
+
+        /** Called from the parsing threads, one at a time and with {@code done} increasing. */
+        interface ProgressListener
+        {
+            void bytesDone(long done, long total);
+        }
+
+        static ImportResult read(Path path, ProgressListener progress) throws IOException
+        {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+            {
+                long size = channel.size();
+                List<long[]> ranges = splitAtLines(channel, size);
+                AtomicLong done = new AtomicLong();
+                List<ChunkResult> chunks = ranges.parallelStream().map(range ->
+                {
+                    try
+                    {
+                        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+                        ChunkResult chunk = parseChunk(StandardCharsets.UTF_8.decode(buf), range[0] == 0);
+                        // Chunks finish on different threads; report under the lock so the total only ever grows
+                        synchronized (done)
+                        {
+                            progress.bytesDone(done.addAndGet(range[1] - range[0]), size);
+                        }
+                        return chunk;
+                    }
+                    catch (IOException e)
+                    {
+                        throw new UncheckedIOException(e);
+                    }
+                }).collect(Collectors.toList());
+                return merge(chunks);
+            }
+            catch (UncheckedIOException e)
+            {
+                throw e.getCause();
+            }
+        }
+
+        // Cuts the file into ~CHUNK_BYTES pieces that each end just after a newline
+        private static List<long[]> splitAtLines(FileChannel channel, long size) throws IOException
+        {
+            List<long[]> ranges = new ArrayList<>();
+            long start = 0;
+            while (start < size)
+            {
+                long end = Math.min(start + CHUNK_BYTES, size);
+                if (end < size)
+                {
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                    int i = window.limit() - 1;
+                    while (i >= 0 && window.get(i) != '\n') i--;
+                    if (i < 0) throw new IOException("Line longer than " + CHUNK_BYTES + " bytes at offset " + start);
+                    end = start + i + 1;
+                }
+                ranges.add(new long[]{start, end});
+                start = end;
+            }
+            return ranges;
+        }
+
+        private static ChunkResult parseChunk(CharBuffer text, boolean firstChunk)
+        {
+            ChunkResult chunk = new ChunkResult();
+            String data = text.toString();
+            int lineStart = 0;
+            while (lineStart < data.length())
+            {
+                int lineEnd = data.indexOf('\n', lineStart);
+                if (lineEnd < 0) lineEnd = data.length();
+                String line = data.substring(lineStart, lineEnd > lineStart && data.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd);
+                int lineNo = chunk.lines++;
+                lineStart = lineEnd + 1;
+                if (line.isBlank()) continue;
+
+                // Name and marks are the first two fields; a trailing Grade column, as written by export, is ignored
+                int comma = fieldEnd(line, 0);
+                int marksEnd = comma < line.length() ? fieldEnd(line, comma + 1) : comma;
+                String name = comma == line.length() ? "" : unquote(line.substring(0, comma).trim());
+                String marksStr = comma == line.length() ? "" : line.substring(comma + 1, marksEnd).trim();
+                try
+                {
+                    double marks = Double.parseDouble(marksStr);
+                    if (name.isEmpty() || !isValidMarks(marks))
+                    {
+                        reject(chunk, lineNo, name.isEmpty() ? "missing name" : "marks must be between 0 and 100");
+                        continue;
+                    }
+                    if (chunk.names.size() == chunk.marks.length)
+                    {
+                        chunk.marks = Arrays.copyOf(chunk.marks, chunk.marks.length * 2);
+                    }
+                    chunk.marks[chunk.names.size()] = marks;
+                    chunk.names.add(name);
+                }
+                catch (NumberFormatException e)
+                {
+                    // A non-numeric first line is a header row, not an error
+                    if (!(firstChunk && lineNo == 0))
+                    {
+                        reject(chunk, lineNo, "marks are not a number");
+                    }
+                }
+            }
+            return chunk;
+        }
+
+        private static void reject(ChunkResult chunk, int lineNo, String message)
+        {
+            chunk.rejected++;
+            if (chunk.errorMessages.size() < MAX_REPORTED_ERRORS)
+            {
+                chunk.errorLines.add(new int[]{lineNo});
+                chunk.errorMessages.add(message);
+            }
+        }
+
+        private static ImportResult merge(List<ChunkResult> chunks)
+        {
+            ImportResult result = new ImportResult();
+            int total = 0;
+            for (ChunkResult chunk : chunks) total += chunk.names.size();
+            result.marks = new double[total];
+            int row = 0;
+            int lineOffset = 0;
+            for (ChunkResult chunk : chunks)
+            {
+                System.arraycopy(chunk.marks, 0, result.marks, row, chunk.names.size());
+                row += chunk.names.size();
+                result.names.addAll(chunk.names);
+                result.rejected += chunk.rejected;
+                for (int i = 0; i < chunk.errorMessages.size() && result.errors.size() < MAX_REPORTED_ERRORS; i++)
+                {
+                    result.errors.add("Line " + (lineOffset + chunk.errorLines.get(i)[0] + 1) + ": " + chunk.errorMessages.get(i));
+                }
+                lineOffset += chunk.lines;
+            }
+            return result;
+        }
+
+        // Index of the comma ending the field that starts at from, or the line length; commas inside quotes don't count
+        private static int fieldEnd(String line, int from)
+        {
+            boolean quoted = false;
+            for (int i = from; i < line.length(); i++)
+            {
+                char c = line.charAt(i);
+                if (c == '"') quoted = !quoted;
+                else if (c == ',' && !quoted) return i;
+            }
+            return line.length();
+        }
+
+        private static String unquote(String field)
+        {
+            if (field.length() >= 2 && field.startsWith("\"") && field.endsWith("\""))
+            {
+                return field.substring(1, field.length() - 1).replace("\"\"", "\"");
+            }
+            return field;
+        }
+
+        private static String quote(String field)
+        {
+            if (field.indexOf(',') < 0 && field.indexOf('"') < 0) return field;
+            return "\"" + field.replace("\"", "\"\"") + "\"";
+        }
+
+        /** Writes name, marks and computed grade for every row, streaming through a buffered writer. */
+        static void write(Path path, String[] names, double[] marks, GradingScheme scheme) throws IOException
+        {
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8))
+            {
+                writer.write("Name,Marks,Grade\n");
+                StringBuilder line = new StringBuilder(64);
+                for (int i = 0; i < names.length; i++)
+                {
+                    line.setLength(0);
+                    line.append(quote(names[i])).append(',').append(marks[i]).append(',').append(scheme.grade(marks[i])).append('\n');
+                    writer.append(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Table model that reads straight from the student list. Changes fire
+     * single-row events, and the Grade column is computed only when a cell is rendered.
+     */
+    class StudentTableModel extends AbstractTableModel
+    {
+        private static final long serialVersionUID = 1L;
+        private final String[] columnNames = {"Name", "Marks", "Grade"};
+
+        @Override
+        public int getRowCount()
+        {
+            return students.size();
+        }
+
+        @Override
+        public int getColumnCount()
+        {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column)
+        {
+            return columnNames[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column)
+        {
+            switch (column)
+            {
+                case 0: return students.name(row);
+                case 1: return students.marks(row);
+                default: return calculateGrade(students.marks(row));
+            }
+        }
+
+        @Override
+        public boolean isCellEditable(int row, int column)
+        {
+            // Allow editing for Name and Marks columns only, and not while an import is building the next store
+            return column < 2 && !importing;
+        }
+
+        @Override
+        public void setValueAt(Object value, int row, int column)
+        {
+            if (handleTableEdit(row, column, value))
+            {
+                fireTableRowsUpdated(row, row);
+            }
+        }
+    }
+
+    // The rows and statistics an import built off the EDT, ready to be swapped in
+    private static class LoadedStudents
+    {
+        final StudentStore students;
+        final GradeStatistics statistics;
+        final StudentCsv.ImportResult result;
+
+        LoadedStudents(StudentStore students, GradeStatistics statistics, StudentCsv.ImportResult result)
+        {
+            this.students = students;
+            this.statistics = statistics;
+            this.result = result;
+        }
     }
 
-    // Class-level list to hold student data
-    private final ArrayList<Student> students = new ArrayList<>();
+    // Class-level store to hold student data; an import replaces all three together
+    private StudentStore students;
+    private GradeStatistics statistics;
+    private boolean importing;
+
+    StudentGradeManagerGUI()
+    {
+        NamePool names = new NamePool();
+        students = new ColumnarStudentStore(names);
+        statistics = new GradeStatistics(names);
+    }
 
     // UI Components
     private JTable studentTable;
-    private DefaultTableModel tableModel;
+    private StudentTableModel tableModel;
     private JTextField nameField;
     private JTextField marksField;
     private JLabel errorLabel;
-    private boolean isUpdatingTable = false; // Flag to prevent listener feedback loops
+    private JProgressBar importProgress;
+    private JButton importButton;
 
     public static void main(String[] args)
     {
@@ -43,18 +1093,23 @@ public class StudentGradeManagerGUI
         SwingUtilities.invokeLater(() -> new StudentGradeManagerGUI().createGUI());
     }
 
+    private static final int TOP_K = 5;
+    private static final int IMPORT_PARSE_PERCENT = 80; // share of the progress bar for parsing; the rest is building the store
+
+    /**
+     * Calculates the letter grade based on the provided marks, using the active grading scheme.
+     */
+    private String calculateGrade(double marks)
+    {
+        return statistics.scheme().grade(marks);
+    }
+
     /**
-     * Calculates the letter grade based on the provided marks.
+     * The marks rule shared by manual entry, table edits and CSV import.
      */
-    private static String calculateGrade(double marks)
+    private static boolean isValidMarks(double marks)
     {
-        if (marks >= 90) return "O";
-        if (marks >= 80) return "E";
-        if (marks >= 70) return "A";
-        if (marks >= 60) return "B";
-        if (marks >= 50) return "C";
-        if (marks >= 40) return "D";
-        return "F";
+        return marks >= 0 && marks <= 100;
     }
 
     private void createGUI()
@@ -71,7 +1126,7 @@ public class StudentGradeManagerGUI
         // --- Main Frame Setup ---
         JFrame frame = new JFrame("Student Marks Manager");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setSize(850, 600); // Adjusted width
+        frame.setSize(1050, 600); // Adjusted width
         frame.setLocationRelativeTo(null);
         frame.getContentPane().setBackground(darkBackground);
 
@@ -90,24 +1145,11 @@ public class StudentGradeManagerGUI
         JPanel inputPanel = createInputPanel(labelFont, greenText, mainFont, componentBg);
 
         // --- Output Table (Center) ---
-        String[] columnNames = {"Name", "Marks", "Grade"};
-        tableModel = new DefaultTableModel(columnNames, 0)
-        {
-            @Override
-            public boolean isCellEditable(int row, int column)
-            {
-                // Allow editing for Name and Marks columns only
-                return column < 2;
-            }
-        };
+        tableModel = new StudentTableModel();
 
         studentTable = new JTable(tableModel);
         styleTable(studentTable, mainFont, darkBackground, greenText, gridColor, componentBg);
 
-        // --- Add listener to handle table edits ---
-        tableModel.addTableModelListener(this::handleTableEdit);
-
-
         JScrollPane scrollPane = new JScrollPane(studentTable);
         scrollPane.getViewport().setBackground(darkBackground);
         scrollPane.setBorder(BorderFactory.createLineBorder(gridColor));
@@ -117,9 +1159,12 @@ public class StudentGradeManagerGUI
         JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
         controlPanel.setBackground(darkBackground);
         JButton reportButton = new JButton("Generate Report");
+        JButton deleteButton = new JButton("Delete Selected");
         JButton clearButton = new JButton("Clear All");
+        importButton = new JButton("Import CSV");
+        JButton exportButton = new JButton("Export CSV");
 
-        JButton[] buttons = {reportButton, clearButton};
+        JButton[] buttons = {reportButton, deleteButton, clearButton, importButton, exportButton};
         for(JButton button : buttons)
         {
             button.setFont(labelFont);
@@ -128,6 +1173,20 @@ public class StudentGradeManagerGUI
             controlPanel.add(button);
         }
 
+        importProgress = new JProgressBar(0, 100);
+        importProgress.setStringPainted(true);
+        importProgress.setForeground(greenText);
+        importProgress.setBackground(componentBg);
+        importProgress.setVisible(false);
+        controlPanel.add(importProgress);
+
+        JComboBox<GradingScheme> schemeSelector = new JComboBox<>(loadGradingSchemes().toArray(new GradingScheme[0]));
+        schemeSelector.setFont(labelFont);
+        schemeSelector.setBackground(componentBg);
+        schemeSelector.setForeground(greenText);
+        schemeSelector.setToolTipText("Grading scheme");
+        controlPanel.add(schemeSelector);
+
         // --- Add Panels to Main Panel ---
         mainPanel.add(inputPanel, BorderLayout.WEST);
         mainPanel.add(scrollPane, BorderLayout.CENTER);
@@ -135,7 +1194,11 @@ public class StudentGradeManagerGUI
 
         // --- Action Listeners ---
         reportButton.addActionListener(e -> generateReport());
+        deleteButton.addActionListener(e -> deleteSelected());
         clearButton.addActionListener(e -> clearAll());
+        importButton.addActionListener(e -> importCsv());
+        exportButton.addActionListener(e -> exportCsv());
+        schemeSelector.addActionListener(e -> applyGradingScheme((GradingScheme) schemeSelector.getSelectedItem()));
 
         // --- Finalize Frame ---
         frame.add(mainPanel);
@@ -219,47 +1282,45 @@ public class StudentGradeManagerGUI
         columnModel.getColumn(2).setCellRenderer(centerRenderer); // Center Grade
     }
 
-    private void handleTableEdit(TableModelEvent e)
+    /**
+     * Applies an edit made in the table. Returns false when the edit was rejected
+     * and the row should keep its old values.
+     */
+    private boolean handleTableEdit(int row, int col, Object newValue)
     {
-        if (e.getType() == TableModelEvent.UPDATE && !isUpdatingTable)
-        {
-            isUpdatingTable = true; // Prevent feedback loop
+        String oldName = students.name(row);
+        double oldMarks = students.marks(row);
 
-            int row = e.getFirstRow();
-            int col = e.getColumn();
-            Object newValue = tableModel.getValueAt(row, col);
-            Student student = students.get(row);
-
-            if (col == 0) // Name column updated
-            {
-                student.name = (String) newValue;
-            }
-            else if (col == 1) // Marks column updated
+        if (col == 0) // Name column updated
+        {
+            String newName = newValue.toString();
+            students.setName(row, newName);
+            statistics.remove(oldName, oldMarks);
+            statistics.add(newName, oldMarks);
+            return true;
+        }
+        try // Marks column updated
+        {
+            double newMarks = Double.parseDouble(newValue.toString());
+            if (!isValidMarks(newMarks))
             {
-                try
-                {
-                    double newMarks = Double.parseDouble(newValue.toString());
-                    if (newMarks < 0 || newMarks > 100)
-                    {
-                        throw new NumberFormatException("Marks out of range.");
-                    }
-                    student.marks = newMarks;
-                    // Update the grade in the table model
-                    tableModel.setValueAt(calculateGrade(newMarks), row, 2);
-                }
-                catch (NumberFormatException ex)
-                {
-                    // Revert the invalid edit in the table and show an error
-                    JOptionPane.showMessageDialog(null, "Invalid marks. Please enter a number between 0 and 100.", "Input Error", JOptionPane.ERROR_MESSAGE);
-                    SwingUtilities.invokeLater(() -> tableModel.setValueAt(student.marks, row, col));
-                }
+                throw new NumberFormatException("Marks out of range.");
             }
-            isUpdatingTable = false;
+            students.setMarks(row, newMarks);
+            statistics.remove(oldName, oldMarks);
+            statistics.add(oldName, newMarks);
+            return true;
+        }
+        catch (NumberFormatException ex)
+        {
+            JOptionPane.showMessageDialog(null, "Invalid marks. Please enter a number between 0 and 100.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return false;
         }
     }
 
     private void addStudent()
     {
+        if (rejectDuringImport()) return;
         String name = nameField.getText().trim();
         String marksStr = marksField.getText().trim();
 
@@ -272,13 +1333,14 @@ public class StudentGradeManagerGUI
         try
         {
             double marks = Double.parseDouble(marksStr);
-            if (marks < 0 || marks > 100)
+            if (!isValidMarks(marks))
             {
                  errorLabel.setText("Marks must be between 0 and 100.");
                  return;
             }
-            students.add(new Student(name, marks));
-            refreshTable();
+            int row = students.add(name, marks);
+            statistics.add(name, marks);
+            tableModel.fireTableRowsInserted(row, row);
             nameField.setText("");
             marksField.setText("");
             nameField.requestFocusInWindow();
@@ -290,16 +1352,6 @@ public class StudentGradeManagerGUI
         }
     }
 
-    private void refreshTable()
-    {
-        tableModel.setRowCount(0);
-        for (Student s : students)
-        {
-            Object[] rowData = {s.name, s.marks, calculateGrade(s.marks)};
-            tableModel.addRow(rowData);
-        }
-    }
-
     private void generateReport()
     {
         if (students.isEmpty())
@@ -308,37 +1360,39 @@ public class StudentGradeManagerGUI
             return;
         }
 
-        double total = 0;
-        double highestMark = -1;
-        double lowestMark = 101;
-
-        for (Student s : students)
+        StringBuilder report = new StringBuilder();
+        report.append("----------- STATISTICS -----------\n\n");
+        report.append(String.format("Students: %d\n\n", statistics.count()));
+        report.append(String.format("Class Average Marks: %.2f\n", statistics.average()));
+        report.append(String.format("Standard Deviation:  %.2f\n\n", statistics.standardDeviation()));
+        report.append(String.format("Highest Marks: %.2f\n(by %s)\n\n", statistics.highest(), String.join(", ", statistics.topPerformers())));
+        report.append(String.format("Lowest Marks:  %.2f\n(by %s)\n\n", statistics.lowest(), String.join(", ", statistics.bottomPerformers())));
+        GradingScheme scheme = statistics.scheme();
+        report.append(String.format("Grade Distribution (%s):\n", scheme.name));
+        for (int band = 0; band < scheme.letters.length; band++)
         {
-            total += s.marks;
-            if (s.marks > highestMark) highestMark = s.marks;
-            if (s.marks < lowestMark) lowestMark = s.marks;
+            report.append(String.format("  %s: %d\n", scheme.letters[band], statistics.gradeCount(band)));
         }
 
-        // Find all students who match the highest and lowest marks
-        double finalHighest = highestMark;
-        String topPerformers = students.stream()
-                .filter(s -> s.marks == finalHighest)
-                .map(s -> s.name)
-                .collect(Collectors.joining(", "));
-
-        double finalLowest = lowestMark;
-        String bottomPerformers = students.stream()
-                .filter(s -> s.marks == finalLowest)
-                .map(s -> s.name)
-                .collect(Collectors.joining(", "));
+        report.append("\n----------- DISTRIBUTION -----------\n\n");
+        report.append(String.format("Median Marks:     %.2f\n", statistics.median()));
+        report.append(String.format("25th Percentile:  %.2f\n", statistics.percentile(25)));
+        report.append(String.format("75th Percentile:  %.2f\n", statistics.percentile(75)));
+        report.append(String.format("90th Percentile:  %.2f\n\n", statistics.percentile(90)));
+        report.append(String.format("Top %d:\n", TOP_K));
+        for (String entry : statistics.topK(TOP_K))
+        {
+            report.append("  ").append(entry).append("\n");
+        }
 
-        double average = total / students.size();
-        
-        StringBuilder report = new StringBuilder();
-        report.append("----------- STATISTICS -----------\n\n");
-        report.append(String.format("Class Average Marks: %.2f\n\n", average));
-        report.append(String.format("Highest Marks: %.2f\n(by %s)\n\n", highestMark, topPerformers));
-        report.append(String.format("Lowest Marks:  %.2f\n(by %s)\n", lowestMark, bottomPerformers));
+        // Rank of the selected student, if any
+        int selected = studentTable.getSelectedRow();
+        if (selected >= 0)
+        {
+            double marks = students.marks(selected);
+            report.append(String.format("\nSelected: %s\nRank %d of %d (percentile %.1f)\n",
+                    students.name(selected), statistics.rank(marks), statistics.count(), statistics.percentileRank(marks)));
+        }
 
         JTextArea reportArea = new JTextArea(report.toString());
         reportArea.setFont(new Font("Consolas", Font.BOLD, 16));
@@ -348,12 +1402,213 @@ public class StudentGradeManagerGUI
         JOptionPane.showMessageDialog(null, reportArea, "Class Report", JOptionPane.INFORMATION_MESSAGE);
     }
 
+    private List<GradingScheme> loadGradingSchemes()
+    {
+        try
+        {
+            return GradingScheme.load(Paths.get(GradingScheme.CONFIG_FILE));
+        }
+        catch (IOException | IllegalArgumentException ex)
+        {
+            JOptionPane.showMessageDialog(null, "Could not load " + GradingScheme.CONFIG_FILE + ": " + ex.getMessage()
+                    + "\nUsing the default grading scheme.", "Configuration Error", JOptionPane.ERROR_MESSAGE);
+            return List.of(GradingScheme.DEFAULT);
+        }
+    }
+
+    /**
+     * Switches the grading scheme for the whole class: the histogram is rebuilt from
+     * the marks index and only the Grade column is repainted.
+     */
+    private void applyGradingScheme(GradingScheme scheme)
+    {
+        if (scheme == null || scheme == statistics.scheme())
+        {
+            return;
+        }
+        statistics.applyScheme(scheme);
+        if (!students.isEmpty())
+        {
+            tableModel.fireTableChanged(new TableModelEvent(tableModel, 0, students.size() - 1, 2));
+        }
+    }
+
+    private void deleteSelected()
+    {
+        if (rejectDuringImport()) return;
+        int row = studentTable.getSelectedRow();
+        if (row < 0)
+        {
+            errorLabel.setText("Select a student to delete.");
+            return;
+        }
+        if (studentTable.isEditing())
+        {
+            studentTable.getCellEditor().cancelCellEditing();
+        }
+        statistics.remove(students.name(row), students.marks(row));
+        students.remove(row);
+        tableModel.fireTableRowsDeleted(row, row);
+        errorLabel.setText(" ");
+    }
+
     private void clearAll()
     {
+        if (rejectDuringImport()) return;
+        int size = students.size();
         students.clear();
-        refreshTable();
+        statistics.clear();
+        if (size > 0)
+        {
+            tableModel.fireTableRowsDeleted(0, size - 1);
+        }
         nameField.setText("");
         marksField.setText("");
         errorLabel.setText(" ");
     }
+
+    // Changes to the rows must wait while an import copies them into its new store
+    private boolean rejectDuringImport()
+    {
+        if (importing)
+        {
+            errorLabel.setText("Wait for the import to finish.");
+        }
+        return importing;
+    }
+
+    /**
+     * Parses a CSV mark sheet and builds the store and statistics for the current rows
+     * plus the imported ones on a background thread; the EDT only swaps them in.
+     * Rows can't be changed until then, so the copy stays in step with the table.
+     */
+    private void importCsv()
+    {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(null) != JFileChooser.APPROVE_OPTION)
+        {
+            return;
+        }
+        Path path = chooser.getSelectedFile().toPath();
+        if (studentTable.isEditing())
+        {
+            studentTable.getCellEditor().cancelCellEditing();
+        }
+        importing = true;
+        importButton.setEnabled(false);
+        importProgress.setValue(0);
+        importProgress.setVisible(true);
+        StudentStore current = students;
+
+        SwingWorker<LoadedStudents, Void> worker = new SwingWorker<>()
+        {
+            @Override
+            protected LoadedStudents doInBackground() throws IOException
+            {
+                StudentCsv.ImportResult result = StudentCsv.read(path, (done, total) -> setProgress((int) (done * IMPORT_PARSE_PERCENT / Math.max(total, 1))));
+
+                NamePool names = new NamePool();
+                StudentStore store = new ColumnarStudentStore(names);
+                GradeStatistics stats = new GradeStatistics(names);
+                int existing = current.size();
+                int total = existing + result.names.size();
+                for (int i = 0; i < total; i++)
+                {
+                    String name = i < existing ? current.name(i) : result.names.get(i - existing);
+                    double marks = i < existing ? current.marks(i) : result.marks[i - existing];
+                    store.add(name, marks);
+                    stats.add(name, marks);
+                    if ((i & 0xFFFF) == 0)
+                    {
+                        setProgress(IMPORT_PARSE_PERCENT + (int) ((100L - IMPORT_PARSE_PERCENT) * i / total));
+                    }
+                }
+                return new LoadedStudents(store, stats, result);
+            }
+
+            @Override
+            protected void done()
+            {
+                importing = false;
+                importButton.setEnabled(true);
+                importProgress.setVisible(false);
+                try
+                {
+                    LoadedStudents loaded = get();
+                    StudentCsv.ImportResult result = loaded.result;
+                    // The scheme may have been switched while the import ran
+                    loaded.statistics.applyScheme(statistics.scheme());
+                    students = loaded.students;
+                    statistics = loaded.statistics;
+                    if (!result.names.isEmpty())
+                    {
+                        tableModel.fireTableDataChanged();
+                    }
+                    String message = "Imported " + result.names.size() + " students.";
+                    if (result.rejected > 0)
+                    {
+                        message += "\nSkipped " + result.rejected + " invalid rows:\n" + String.join("\n", result.errors);
+                    }
+                    JOptionPane.showMessageDialog(null, message, "Import Complete", JOptionPane.INFORMATION_MESSAGE);
+                }
+                catch (InterruptedException | ExecutionException ex)
+                {
+                    JOptionPane.showMessageDialog(null, "Could not import file: " + ex.getCause(), "Import Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.addPropertyChangeListener(e ->
+        {
+            if ("progress".equals(e.getPropertyName()))
+            {
+                importProgress.setValue((Integer) e.getNewValue());
+            }
+        });
+        worker.execute();
+    }
+
+    private void exportCsv()
+    {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(null) != JFileChooser.APPROVE_OPTION)
+        {
+            return;
+        }
+        Path path = chooser.getSelectedFile().toPath();
+
+        // Copy the columns on the EDT so the write can stream in the background
+        GradingScheme scheme = statistics.scheme();
+        int count = students.size();
+        String[] names = new String[count];
+        double[] marks = new double[count];
+        for (int i = 0; i < count; i++)
+        {
+            names[i] = students.name(i);
+            marks[i] = students.marks(i);
+        }
+
+        new SwingWorker<Void, Void>()
+        {
+            @Override
+            protected Void doInBackground() throws IOException
+            {
+                StudentCsv.write(path, names, marks, scheme);
+                return null;
+            }
+
+            @Override
+            protected void done()
+            {
+                try
+                {
+                    get();
+                    errorLabel.setText(" ");
+                }
+                catch (InterruptedException | ExecutionException ex)
+                {
+                    JOptionPane.showMessageDialog(null, "Could not export file: " + ex.getCause(), "Export Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
 }
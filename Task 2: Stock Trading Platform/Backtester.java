@@ -0,0 +1,254 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * Replays a TickFile through the trading core for many strategies at once.
+ *
+ * Each run streams every tick through its own Stocks and User: the price is
+ * set, the account's valuation is marked, and the strategy trades with the
+ * same User.buyStock / sellStock an interactive user does. Runs share
+ * nothing but the read-only mapping, so they are spread over a fork-join
+ * pool and scale with the cores.
+ *
+ * Run from the command line:
+ *
+ *   java Backtester convert ticks.csv ticks.bin
+ *   java Backtester generate ticks.bin 10000000
+ *   java Backtester run ticks.bin [threads]
+ */
+class Backtester
+{
+    /** One strategy with one set of parameters. */
+    static final class Run
+    {
+        final String name;
+        final Supplier<Strategy> strategy;
+
+        Run(String name, Supplier<Strategy> strategy)
+        {
+            this.name = name;
+            this.strategy = strategy;
+        }
+    }
+
+    static final class Result
+    {
+        final String name;
+        final long equity; // cash plus holdings at the last prices, paise
+        final long realizedPnl, unrealizedPnl;
+        final int trades;
+        final long ticks;
+        final long elapsedNanos;
+
+        Result(String name, long equity, long realizedPnl, long unrealizedPnl, int trades, long ticks, long elapsedNanos)
+        {
+            this.name = name;
+            this.equity = equity;
+            this.realizedPnl = realizedPnl;
+            this.unrealizedPnl = unrealizedPnl;
+            this.trades = trades;
+            this.ticks = ticks;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        double tradesPerSecond()
+        {
+            return trades * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        double ticksPerSecond()
+        {
+            return ticks * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%-28s P&L \u20B9%14s (realized %14s, unrealized %14s) %8d trades %10.0f trades/s %6.1fM ticks/s",
+                    name, Money.formatSigned(realizedPnl + unrealizedPnl), Money.formatSigned(realizedPnl),
+                    Money.formatSigned(unrealizedPnl), trades, tradesPerSecond(), ticksPerSecond() / 1e6);
+        }
+    }
+
+    private final TickFile ticks;
+    private final long openingBalance;
+
+    Backtester(TickFile ticks, long openingBalance)
+    {
+        this.ticks = ticks;
+        this.openingBalance = openingBalance;
+    }
+
+    /** Runs one strategy over every tick on the calling thread. */
+    Result run(Run run)
+    {
+        Stock[] stocks = new Stock[ticks.symbols.length];
+        for (int i = 0; i < stocks.length; i++)
+            stocks[i] = new Stock(ticks.symbols[i], ticks.symbols[i], 0);
+        User account = new User(run.name, openingBalance);
+        Strategy strategy = run.strategy.get();
+        strategy.start(stocks);
+
+        long started = System.nanoTime();
+        for (int c = 0; c < ticks.chunkCount(); c++)
+        {
+            ByteBuffer chunk = ticks.chunk(c);
+            int limit = chunk.limit();
+            for (int offset = 0; offset < limit; offset += TickFile.RECORD_BYTES)
+            {
+                long nanos = chunk.getLong(offset);
+                int symbol = chunk.getInt(offset + 8);
+                long price = chunk.getInt(offset + 12);
+                Stock stock = stocks[symbol];
+                stock.price = price;
+                account.onPrice(stock, price);
+                strategy.onTick(symbol, stock, nanos, account);
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        synchronized (account)
+        {
+            return new Result(run.name, account.balance + account.valuation.marketValue(), account.valuation.realizedPnl(),
+                    account.valuation.unrealizedPnl(), account.history.size(), ticks.ticks, elapsed);
+        }
+    }
+
+    /** Runs every strategy on {@code pool}; results are in the order of {@code runs}. */
+    Result[] runAll(List<Run> runs, ForkJoinPool pool)
+    {
+        Result[] results = new Result[runs.size()];
+        pool.invoke(new RunTask(runs, results, 0, runs.size()));
+        return results;
+    }
+
+    // Splits the runs in halves until each task holds one
+    private final class RunTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final List<Run> runs;
+        private final Result[] results;
+        private final int from, to;
+
+        RunTask(List<Run> runs, Result[] results, int from, int to)
+        {
+            this.runs = runs;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from == 1)
+            {
+                results[from] = run(runs.get(from));
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RunTask(runs, results, from, mid), new RunTask(runs, results, mid, to));
+        }
+    }
+
+    /** The built-in sweep: buy and hold, plus moving-average crossovers over a grid of windows. */
+    static List<Run> defaultRuns()
+    {
+        List<Run> runs = new ArrayList<>();
+        runs.add(new Run("buyAndHold", () -> new BuyAndHold(100)));
+        for (int fast : new int[]{5, 10, 20, 50})
+            for (int slow : new int[]{100, 200, 500, 1000})
+                runs.add(new Run("smaCross fast=" + fast + " slow=" + slow, () -> new MovingAverageCrossover(fast, slow, 100)));
+        return runs;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length >= 3 && args[0].equals("convert"))
+        {
+            System.out.println(TickFile.convert(Paths.get(args[1]), Paths.get(args[2])) + " ticks written to " + args[2]);
+            return;
+        }
+        if (args.length >= 3 && args[0].equals("generate"))
+        {
+            System.out.println(generate(Paths.get(args[1]), Long.parseLong(args[2])) + " ticks written to " + args[1]);
+            return;
+        }
+        if (args.length < 2 || !args[0].equals("run"))
+        {
+            System.err.println("Usage: java Backtester convert <ticks.csv> <ticks.bin>");
+            System.err.println("       java Backtester generate <ticks.bin> <count>");
+            System.err.println("       java Backtester run <ticks.bin> [threads]");
+            System.exit(2);
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        try (TickFile file = TickFile.open(Paths.get(args[1])))
+        {
+            Backtester backtester = new Backtester(file, Money.ofRupees(10_000_000));
+            List<Run> runs = defaultRuns();
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long started = System.nanoTime();
+            Result[] results = backtester.runAll(runs, pool);
+            long elapsed = System.nanoTime() - started;
+            pool.shutdown();
+            for (Result r : results)
+                System.out.println(r);
+            System.out.printf("%d runs of %d ticks on %d threads in %.2f s, %.1fM ticks/s overall%n",
+                    runs.size(), file.ticks, threads, elapsed / 1e9, runs.size() * file.ticks * 1e3 / elapsed);
+        }
+    }
+
+    /**
+     * Writes {@code count} ticks of the simulated market (the GUI's four stocks,
+     * one tick a millisecond) to a tick file, for trying strategies without
+     * historical data. Returns the number of ticks written.
+     */
+    static long generate(Path out, long count) throws IOException
+    {
+        List<Stock> stocks = new ArrayList<>();
+        stocks.add(new Stock("TCS", "Tata Consultancy Services", Money.ofRupees(3700)));
+        stocks.add(new Stock("INFY", "Infosys", Money.ofRupees(1500)));
+        stocks.add(new Stock("RELI", "Reliance Industries", Money.ofRupees(2500)));
+        stocks.add(new Stock("HDFC", "HDFC Bank", Money.ofRupees(1600)));
+        PriceSource source = new SimulatedPriceSource(stocks, 0.05, 0.25, 1.0 / (252 * 6.5 * 3600), 24);
+        PriceSource.Tick tick = new PriceSource.Tick();
+        long start = TradeLedger.epochNanos();
+        try (TickFile.Writer writer = new TickFile.Writer(out))
+        {
+            for (long i = 0; i < count && source.next(tick); i++)
+                writer.append(tick.stock.symbol, tick.price, start + i * 1_000_000L);
+            return writer.ticks(); // fewer than count if the source ran dry
+        }
+    }
+}
+
+/** Buys a fixed quantity of every symbol on its first tick and holds; the baseline for other runs. */
+class BuyAndHold implements Strategy
+{
+    private final int quantity;
+    private boolean[] bought;
+
+    BuyAndHold(int quantity)
+    {
+        this.quantity = quantity;
+    }
+
+    @Override
+    public void start(Stock[] stocks)
+    {
+        bought = new boolean[stocks.length];
+    }
+
+    @Override
+    public void onTick(int symbol, Stock stock, long epochNanos, User account)
+    {
+        if (!bought[symbol])
+            bought[symbol] = account.buyStock(stock, quantity, epochNanos);
+    }
+}
@@ -0,0 +1,366 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Rolls price ticks into 1s, 1m and 1h OHLCV bars per symbol.
+ *
+ * The most recent bars of each symbol and resolution sit in a fixed ring of
+ * primitive arrays, so memory per symbol is bounded whatever the feed rate.
+ * With a directory, every completed bar is also appended to a time-series
+ * file for that symbol and resolution; when a query reaches back past the
+ * ring it is answered from the file with a binary search and one bulk read.
+ * Prices come from the feed; volume is the shares executed on the order
+ * books, added to the symbol's current bar.
+ */
+class BarAggregator implements PriceListener, TradeListener, Closeable
+{
+    private final Path directory; // null keeps bars in memory only
+    private volatile BarSeries[][] bySymbol = new BarSeries[0][]; // [SymbolRegistry id][Resolution ordinal]
+
+    BarAggregator(Path directory)
+    {
+        this.directory = directory;
+    }
+
+    @Override
+    public void onPrice(Stock stock, long price, long timestampNanos)
+    {
+        for (BarSeries series : series(stock))
+            series.tick(timestampNanos, price);
+    }
+
+    @Override
+    public void onTrade(Stock stock, User buyer, User seller, int quantity, long priceTicks)
+    {
+        for (BarSeries series : series(stock))
+            series.trade(quantity);
+    }
+
+    /**
+     * Fills {@code out} with the bars of {@code stock} starting in
+     * [fromNanos, toNanos), oldest first, including the one still forming.
+     * Returns the number of bars.
+     */
+    int query(Stock stock, Resolution resolution, long fromNanos, long toNanos, Bars out)
+    {
+        out.clear();
+        series(stock)[resolution.ordinal()].query(fromNanos, toNanos, out);
+        return out.size;
+    }
+
+    /** Start of the newest bar of {@code stock}, or Long.MIN_VALUE if it has none yet. */
+    long latest(Stock stock, Resolution resolution)
+    {
+        return series(stock)[resolution.ordinal()].latest();
+    }
+
+    private BarSeries[] series(Stock stock)
+    {
+        BarSeries[][] table = bySymbol;
+        if (stock.id < table.length && table[stock.id] != null)
+            return table[stock.id];
+        return create(stock);
+    }
+
+    private synchronized BarSeries[] create(Stock stock)
+    {
+        BarSeries[][] table = bySymbol;
+        if (stock.id < table.length && table[stock.id] != null)
+            return table[stock.id];
+        BarSeries[] series = new BarSeries[Resolution.values().length];
+        for (Resolution r : Resolution.values())
+            series[r.ordinal()] = new BarSeries(r, directory == null ? null
+                    : directory.resolve(TradeLedger.safeFileName(stock.symbol) + "." + r.label + BarSeries.EXTENSION));
+        table = Arrays.copyOf(table, Math.max(table.length, stock.id + 1));
+        table[stock.id] = series;
+        bySymbol = table;
+        return series;
+    }
+
+    /** Writes out the bars still forming, so they are picked up again on restart. */
+    @Override
+    public synchronized void close()
+    {
+        for (BarSeries[] series : bySymbol)
+        {
+            if (series == null)
+                continue;
+            for (BarSeries s : series)
+                s.close();
+        }
+    }
+}
+
+/**
+ * Bars of one symbol at one resolution: a ring of the newest bars plus,
+ * optionally, a file of all completed ones.
+ *
+ * File layout: the 16-byte TradeLedger-style header followed by fixed
+ * 32-byte little-endian records in time order:
+ *
+ *   0  long  start     epoch nanos
+ *   8  long  open      paise
+ *  16  int   high - open
+ *  20  int   open - low
+ *  24  int   close - open
+ *  28  int   volume    (saturates at Integer.MAX_VALUE)
+ *
+ * The bar still forming when the aggregator is closed is written too; on
+ * the next open it is read back into the ring and cut from the file, so it
+ * keeps forming instead of being duplicated.
+ */
+final class BarSeries
+{
+    static final int MAGIC = 0x52414254; // "TBAR" little-endian
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 32;
+    static final String EXTENSION = ".bars";
+
+    private final long period;
+    private final long[] start, open, high, low, close, volume;
+    private int newest = -1, count;
+
+    private final Path file;
+    private FileChannel channel; // opened on first use
+    private boolean opened;
+    private long diskRecords;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private ByteBuffer readBuffer;
+
+    BarSeries(Resolution resolution, Path file)
+    {
+        int n = resolution.inMemory;
+        this.period = resolution.nanos;
+        this.start = new long[n];
+        this.open = new long[n];
+        this.high = new long[n];
+        this.low = new long[n];
+        this.close = new long[n];
+        this.volume = new long[n];
+        this.file = file;
+    }
+
+    synchronized void tick(long timestampNanos, long price)
+    {
+        if (count == 0)
+            open(); // picks up the bar that was forming at the last close
+        long bucket = Math.floorDiv(timestampNanos, period) * period;
+        if (count > 0)
+        {
+            long current = start[newest];
+            if (bucket == current)
+            {
+                if (price > high[newest])
+                    high[newest] = price;
+                if (price < low[newest])
+                    low[newest] = price;
+                close[newest] = price;
+                return;
+            }
+            if (bucket < current)
+                return; // late tick for a bar already rolled over
+            spill(newest);
+        }
+        newest = (newest + 1) % start.length;
+        if (count < start.length)
+            count++;
+        start[newest] = bucket;
+        open[newest] = high[newest] = low[newest] = close[newest] = price;
+        volume[newest] = 0;
+    }
+
+    synchronized void trade(int quantity)
+    {
+        if (count > 0)
+            volume[newest] += quantity;
+    }
+
+    synchronized long latest()
+    {
+        return count == 0 ? Long.MIN_VALUE : start[newest];
+    }
+
+    synchronized void query(long from, long to, Bars out)
+    {
+        int oldest = (newest - count + 1 + start.length) % start.length;
+        long ringStart = count == 0 ? Long.MAX_VALUE : start[oldest];
+        if (from < ringStart && open())
+            readFile(from, Math.min(to, ringStart), out);
+        // The ring is sorted by start; find the first bar at or after from
+        int lo = 0, hi = count;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (start[(oldest + mid) % start.length] < from)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        for (int k = lo; k < count; k++)
+        {
+            int i = (oldest + k) % start.length;
+            if (start[i] >= to)
+                break;
+            out.add(start[i], open[i], high[i], low[i], close[i], volume[i]);
+        }
+    }
+
+    synchronized void close()
+    {
+        if (channel == null)
+            return;
+        try
+        {
+            if (count > 0)
+                spill(newest);
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+        channel = null;
+    }
+
+    // Appends one bar to the file; a failed write loses chart history only, so it is reported and skipped
+    private void spill(int i)
+    {
+        if (channel == null)
+            return;
+        record.clear();
+        record.putLong(start[i]).putLong(open[i])
+                .putInt(Math.toIntExact(high[i] - open[i]))
+                .putInt(Math.toIntExact(open[i] - low[i]))
+                .putInt(Math.toIntExact(close[i] - open[i]))
+                .putInt((int) Math.min(volume[i], Integer.MAX_VALUE))
+                .flip();
+        try
+        {
+            long position = HEADER_BYTES + diskRecords * RECORD_BYTES;
+            while (record.hasRemaining())
+                position += channel.write(record, position);
+            diskRecords++;
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Opens the file on first use and takes its last bar back into the ring.
+     * Returns false if there is no file to use.
+     */
+    private boolean open()
+    {
+        if (opened)
+            return channel != null;
+        opened = true;
+        if (file == null)
+            return false;
+        try
+        {
+            Files.createDirectories(file.getParent());
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.size() < HEADER_BYTES)
+            {
+                header.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_BYTES).flip();
+                channel.truncate(0);
+                channel.write(header, 0);
+            }
+            else
+            {
+                channel.read(header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC || header.getShort() != VERSION || header.getShort() != RECORD_BYTES)
+                    throw new IOException("Not a bar file: " + file);
+            }
+            diskRecords = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+            if (diskRecords > 0 && count == 0)
+            {
+                diskRecords--;
+                ByteBuffer last = read(diskRecords, 1);
+                newest = 0;
+                count = 1;
+                decode(last, 0, 0);
+            }
+            channel.truncate(HEADER_BYTES + diskRecords * RECORD_BYTES); // also drops a torn tail
+            return true;
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+            channel = null;
+            return false;
+        }
+    }
+
+    // Bars on disk starting in [from, to)
+    private void readFile(long from, long to, Bars out)
+    {
+        try
+        {
+            long lo = 0, hi = diskRecords;
+            while (lo < hi)
+            {
+                long mid = (lo + hi) >>> 1;
+                if (read(mid, 1).getLong(0) < from)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            while (lo < diskRecords)
+            {
+                int n = (int) Math.min(diskRecords - lo, 4096);
+                ByteBuffer buf = read(lo, n);
+                for (int k = 0; k < n; k++)
+                {
+                    int offset = k * RECORD_BYTES;
+                    long barStart = buf.getLong(offset);
+                    if (barStart >= to)
+                        return;
+                    long o = buf.getLong(offset + 8);
+                    out.add(barStart, o, o + buf.getInt(offset + 16), o - buf.getInt(offset + 20),
+                            o + buf.getInt(offset + 24), buf.getInt(offset + 28));
+                }
+                lo += n;
+            }
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    private ByteBuffer read(long first, int n) throws IOException
+    {
+        int bytes = n * RECORD_BYTES;
+        if (readBuffer == null || readBuffer.capacity() < bytes)
+            readBuffer = ByteBuffer.allocate(Math.max(bytes, RECORD_BYTES * 64)).order(ByteOrder.LITTLE_ENDIAN);
+        readBuffer.clear().limit(bytes);
+        long position = HEADER_BYTES + first * RECORD_BYTES;
+        while (readBuffer.hasRemaining() && channel.read(readBuffer, position + readBuffer.position()) > 0)
+        {
+        }
+        return readBuffer.flip();
+    }
+
+    private void decode(ByteBuffer buf, int offset, int i)
+    {
+        start[i] = buf.getLong(offset);
+        open[i] = buf.getLong(offset + 8);
+        high[i] = open[i] + buf.getInt(offset + 16);
+        low[i] = open[i] - buf.getInt(offset + 20);
+        close[i] = open[i] + buf.getInt(offset + 24);
+        volume[i] = buf.getInt(offset + 28);
+    }
+}
@@ -0,0 +1,112 @@
+import javax.swing.JComponent;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Candlestick chart of one symbol's most recent bars, as many as fit the
+ * width. Painting queries the aggregator into a reused Bars, so repainting
+ * on every refresh stays cheap.
+ */
+class BarChart extends JComponent
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final int CANDLE_WIDTH = 6;
+    private static final DateTimeFormatter dtf = DateTimeFormatter.ofPattern("MM-dd HH:mm:ss");
+    private static final Color UP = new Color(40, 200, 40), DOWN = new Color(220, 60, 60), TEXT = new Color(160, 160, 160);
+
+    private final BarAggregator aggregator;
+    private final Bars bars = new Bars();
+    private Stock stock;
+    private Resolution resolution = Resolution.SECOND;
+
+    BarChart(BarAggregator aggregator)
+    {
+        this.aggregator = aggregator;
+        setOpaque(true);
+        setBackground(new Color(20, 20, 20));
+        setFont(new Font("Consolas", Font.PLAIN, 11));
+    }
+
+    void show(Stock stock, Resolution resolution)
+    {
+        this.stock = stock;
+        this.resolution = resolution;
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g0)
+    {
+        Graphics2D g = (Graphics2D) g0;
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setColor(TEXT);
+        int textHeight = g.getFontMetrics().getHeight();
+        if (stock == null)
+            return;
+        long latest = aggregator.latest(stock, resolution);
+        int fit = Math.max(1, (getWidth() - 70) / CANDLE_WIDTH);
+        if (latest == Long.MIN_VALUE
+                || aggregator.query(stock, resolution, latest - (fit - 1) * resolution.nanos, latest + 1, bars) == 0)
+        {
+            g.drawString("No " + resolution + " bars for " + stock.symbol + " yet.", 10, textHeight);
+            return;
+        }
+
+        long max = Long.MIN_VALUE, min = Long.MAX_VALUE, maxVolume = 0;
+        for (int i = 0; i < bars.size; i++)
+        {
+            max = Math.max(max, bars.high[i]);
+            min = Math.min(min, bars.low[i]);
+            maxVolume = Math.max(maxVolume, bars.volume[i]);
+        }
+        int top = textHeight + 4, bottom = getHeight() - textHeight - 4;
+        int volumeHeight = maxVolume > 0 ? (bottom - top) / 5 : 0;
+        int priceBottom = bottom - volumeHeight;
+        double scale = (priceBottom - top) / (double) Math.max(1, max - min);
+
+        g.drawString(stock.symbol + " " + resolution + "  O " + Money.format(bars.open[bars.size - 1])
+                + " H " + Money.format(bars.high[bars.size - 1]) + " L " + Money.format(bars.low[bars.size - 1])
+                + " C " + Money.format(bars.close[bars.size - 1]), 4, textHeight);
+        int axis = getWidth() - 66;
+        g.drawString(Money.format(max), axis + 4, top + textHeight / 2);
+        g.drawString(Money.format(min), axis + 4, priceBottom);
+
+        long first = latest - (fit - 1) * resolution.nanos;
+        for (int i = 0; i < bars.size; i++)
+        {
+            int x = (int) ((bars.start[i] - first) / resolution.nanos) * CANDLE_WIDTH;
+            int yHigh = priceBottom - (int) ((bars.high[i] - min) * scale);
+            int yLow = priceBottom - (int) ((bars.low[i] - min) * scale);
+            int yOpen = priceBottom - (int) ((bars.open[i] - min) * scale);
+            int yClose = priceBottom - (int) ((bars.close[i] - min) * scale);
+            g.setColor(bars.close[i] >= bars.open[i] ? UP : DOWN);
+            g.drawLine(x + CANDLE_WIDTH / 2 - 1, yHigh, x + CANDLE_WIDTH / 2 - 1, yLow);
+            g.fillRect(x, Math.min(yOpen, yClose), CANDLE_WIDTH - 2, Math.max(1, Math.abs(yOpen - yClose)));
+            if (volumeHeight > 0 && bars.volume[i] > 0)
+            {
+                int h = (int) Math.max(1, bars.volume[i] * volumeHeight / maxVolume);
+                g.fillRect(x, bottom - h, CANDLE_WIDTH - 2, h);
+            }
+        }
+        g.setColor(TEXT);
+        int firstX = (int) ((bars.start[0] - first) / resolution.nanos) * CANDLE_WIDTH;
+        g.drawString(time(bars.start[0]), Math.min(firstX, axis / 2), getHeight() - 4);
+        String last = time(bars.start[bars.size - 1]);
+        g.drawString(last, axis - g.getFontMetrics().stringWidth(last), getHeight() - 4);
+    }
+
+    private static String time(long epochNanos)
+    {
+        return dtf.format(LocalDateTime.ofInstant(Instant.ofEpochSecond(0, epochNanos), ZoneId.systemDefault()));
+    }
+}
@@ -0,0 +1,39 @@
+import java.util.Arrays;
+
+/**
+ * Columns of OHLCV bars, oldest first, filled by BarAggregator.query. Reused
+ * between queries so redrawing a chart doesn't allocate.
+ */
+final class Bars
+{
+    long[] start = new long[256]; // epoch nanos
+    long[] open = new long[256], high = new long[256], low = new long[256], close = new long[256]; // paise
+    long[] volume = new long[256];
+    int size;
+
+    void clear()
+    {
+        size = 0;
+    }
+
+    void add(long start, long open, long high, long low, long close, long volume)
+    {
+        if (size == this.start.length)
+        {
+            int n = size * 2;
+            this.start = Arrays.copyOf(this.start, n);
+            this.open = Arrays.copyOf(this.open, n);
+            this.high = Arrays.copyOf(this.high, n);
+            this.low = Arrays.copyOf(this.low, n);
+            this.close = Arrays.copyOf(this.close, n);
+            this.volume = Arrays.copyOf(this.volume, n);
+        }
+        this.start[size] = start;
+        this.open[size] = open;
+        this.high[size] = high;
+        this.low[size] = low;
+        this.close[size] = close;
+        this.volume[size] = volume;
+        size++;
+    }
+}
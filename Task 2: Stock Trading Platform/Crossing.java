@@ -0,0 +1,5 @@
+/** Which way the price has to move to reach a trigger's level. */
+enum Crossing
+{
+    AT_OR_ABOVE, AT_OR_BELOW
+}
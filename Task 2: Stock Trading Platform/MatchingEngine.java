@@ -0,0 +1,500 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Notified of every execution, after both accounts have been settled.
+ */
+interface TradeListener
+{
+    void onTrade(Stock stock, User buyer, User seller, int quantity, long priceTicks);
+}
+
+/**
+ * Routes orders to one price-time-priority OrderBook per symbol.
+ * Prices are in ticks of one paisa, the same unit as Money.
+ */
+class MatchingEngine
+{
+    static final long REJECTED = -1;
+
+    private final Map<String, OrderBook> books = new HashMap<>(); // fixed after construction
+    private final AtomicLong nextOrderId = new AtomicLong(1);
+    final List<TradeListener> listeners = new CopyOnWriteArrayList<>();
+
+    MatchingEngine(Map<String, Stock> stockMap)
+    {
+        for (Stock stock : stockMap.values())
+            books.put(stock.symbol, new OrderBook(stock, this));
+    }
+
+    void addListener(TradeListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    OrderBook book(String symbol)
+    {
+        return books.get(symbol);
+    }
+
+    /**
+     * Submits an order and matches it immediately against the opposite side.
+     * A limit remainder rests on the book; a market remainder is cancelled.
+     *
+     * @param limitTicks limit price in ticks; ignored for market orders
+     * @return the order id, or REJECTED if the symbol is unknown or the user
+     *         cannot cover the order (cash for limit buys, shares for sells)
+     */
+    long submit(User user, String symbol, Side side, OrderType type, int quantity, long limitTicks)
+    {
+        OrderBook book = books.get(symbol);
+        if (book == null || quantity <= 0
+                || (type == OrderType.LIMIT && (limitTicks <= 0 || limitTicks > Long.MAX_VALUE / quantity)))
+            return REJECTED;
+        return book.submit(user, side, type, quantity, limitTicks, nextOrderId.getAndIncrement());
+    }
+
+    /**
+     * Cancels the unfilled part of a resting order and releases its
+     * reservation. Returns false, leaving the order alone, unless it is
+     * resting and was placed by {@code user}.
+     */
+    boolean cancel(User user, String symbol, long orderId)
+    {
+        OrderBook book = books.get(symbol);
+        return book != null && book.cancel(user, orderId);
+    }
+
+    /** Cancels every resting order on every book, e.g. at the close. */
+    void cancelAll()
+    {
+        for (OrderBook book : books.values())
+            book.cancelAll();
+    }
+}
+
+/**
+ * A resting or in-flight order. Instances are pooled by their OrderBook and
+ * reused once filled or cancelled, so callers refer to orders by id only.
+ */
+final class Order
+{
+    long id;
+    User user;
+    Side side;
+    boolean market;
+    long priceTicks;
+    int remaining;
+    PriceLevel level;
+    Order prev, next; // FIFO within the level; next doubles as the free-list link
+}
+
+/**
+ * All resting orders at one price, oldest first.
+ */
+final class PriceLevel
+{
+    long priceTicks;
+    long quantity;
+    Order head, tail;
+    PriceLevel nextFree;
+
+    void append(Order o)
+    {
+        o.level = this;
+        o.prev = tail;
+        o.next = null;
+        if (tail == null)
+            head = o;
+        else
+            tail.next = o;
+        tail = o;
+        quantity += o.remaining;
+    }
+
+    void unlink(Order o)
+    {
+        if (o.prev == null)
+            head = o.next;
+        else
+            o.prev.next = o.next;
+        if (o.next == null)
+            tail = o.prev;
+        else
+            o.next.prev = o.prev;
+        quantity -= o.remaining;
+        o.level = null;
+        o.prev = o.next = null;
+    }
+}
+
+/**
+ * One side of a book: price levels in a sorted primitive array with the best
+ * price last, so consuming the top of book never shifts the array. Bids are
+ * keyed by price and asks by -price, which keeps both ascending.
+ */
+final class BookSide
+{
+    private final boolean bids;
+    private long[] keys = new long[32];
+    private PriceLevel[] levels = new PriceLevel[32];
+    private int size;
+
+    BookSide(boolean bids)
+    {
+        this.bids = bids;
+    }
+
+    private long key(long priceTicks)
+    {
+        return bids ? priceTicks : -priceTicks;
+    }
+
+    PriceLevel best()
+    {
+        return size == 0 ? null : levels[size - 1];
+    }
+
+    int levelCount()
+    {
+        return size;
+    }
+
+    PriceLevel find(long priceTicks)
+    {
+        int i = Arrays.binarySearch(keys, 0, size, key(priceTicks));
+        return i >= 0 ? levels[i] : null;
+    }
+
+    void insert(PriceLevel level)
+    {
+        long k = key(level.priceTicks);
+        int i = -Arrays.binarySearch(keys, 0, size, k) - 1;
+        if (size == keys.length)
+        {
+            keys = Arrays.copyOf(keys, size * 2);
+            levels = Arrays.copyOf(levels, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(levels, i, levels, i + 1, size - i);
+        keys[i] = k;
+        levels[i] = level;
+        size++;
+    }
+
+    void remove(PriceLevel level)
+    {
+        int i = Arrays.binarySearch(keys, 0, size, key(level.priceTicks));
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(levels, i + 1, levels, i, size - i - 1);
+        levels[--size] = null;
+    }
+}
+
+/**
+ * Open-addressed map from order id to resting Order, so cancels don't box ids.
+ */
+final class OrderIndex
+{
+    private long[] ids = new long[64];
+    private Order[] orders = new Order[64];
+    private int size;
+
+    private int slot(long id)
+    {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (ids.length - 1);
+    }
+
+    Order get(long id)
+    {
+        int mask = ids.length - 1;
+        int i = slot(id);
+        while (orders[i] != null && ids[i] != id)
+            i = (i + 1) & mask;
+        return orders[i];
+    }
+
+    void put(Order order)
+    {
+        if (size * 2 >= ids.length)
+            resize();
+        int i = slot(order.id);
+        while (orders[i] != null)
+            i = (i + 1) & (ids.length - 1);
+        ids[i] = order.id;
+        orders[i] = order;
+        size++;
+    }
+
+    Order remove(long id)
+    {
+        int mask = ids.length - 1;
+        int i = slot(id);
+        while (orders[i] != null && ids[i] != id)
+            i = (i + 1) & mask;
+        Order found = orders[i];
+        if (found == null)
+            return null;
+        // backward-shift deletion keeps probe chains intact without tombstones
+        int gap = i;
+        for (int j = (i + 1) & mask; orders[j] != null; j = (j + 1) & mask)
+        {
+            int home = slot(ids[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask))
+            {
+                ids[gap] = ids[j];
+                orders[gap] = orders[j];
+                gap = j;
+            }
+        }
+        orders[gap] = null;
+        size--;
+        return found;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    private void resize()
+    {
+        long[] oldIds = ids;
+        Order[] oldOrders = orders;
+        ids = new long[oldIds.length * 2];
+        orders = new Order[oldIds.length * 2];
+        size = 0;
+        for (int i = 0; i < oldIds.length; i++)
+            if (oldOrders[i] != null)
+                put(oldOrders[i]);
+    }
+}
+
+/**
+ * Price-time-priority book for one symbol. Executions happen at the resting
+ * order's price. Cash for a limit buy and shares for any sell are reserved
+ * from the account when the order is accepted, so a fill can never fail
+ * settlement; a market buy reserves cash fill by fill and stops when the
+ * account can no longer pay.
+ *
+ * Order and PriceLevel objects come from per-book free lists, so matching
+ * allocates nothing beyond the Transaction records written to each account.
+ */
+final class OrderBook
+{
+    final Stock stock;
+    private final MatchingEngine engine;
+    private final BookSide bids = new BookSide(true);
+    private final BookSide asks = new BookSide(false);
+    private final OrderIndex resting = new OrderIndex();
+    private Order freeOrders;
+    private PriceLevel freeLevels;
+
+    OrderBook(Stock stock, MatchingEngine engine)
+    {
+        this.stock = stock;
+        this.engine = engine;
+    }
+
+    synchronized long submit(User user, Side side, OrderType type, int quantity, long limitTicks, long id)
+    {
+        boolean market = type == OrderType.MARKET;
+        if (!user.canTrade())
+            return MatchingEngine.REJECTED;
+        if (side == Side.SELL ? !user.reserveShares(stock, quantity)
+                : !market && !user.reserveCash(Money.times(limitTicks, quantity)))
+            return MatchingEngine.REJECTED;
+
+        Order order = takeOrder();
+        order.id = id;
+        order.user = user;
+        order.side = side;
+        order.market = market;
+        order.priceTicks = !market ? limitTicks : side == Side.BUY ? Long.MAX_VALUE : 0;
+        order.remaining = quantity;
+
+        match(order);
+        if (order.remaining > 0 && !market)
+            rest(order);
+        else
+        {
+            release(order);
+            recycle(order);
+        }
+        return id;
+    }
+
+    synchronized boolean cancel(User user, long orderId)
+    {
+        Order order = resting.get(orderId);
+        if (order == null || order.user != user)
+            return false;
+        resting.remove(orderId);
+        PriceLevel level = order.level;
+        level.unlink(order);
+        if (level.head == null)
+            removeLevel(order.side == Side.BUY ? bids : asks, level);
+        release(order);
+        recycle(order);
+        return true;
+    }
+
+    synchronized void cancelAll()
+    {
+        for (BookSide side : new BookSide[]{bids, asks})
+        {
+            PriceLevel level;
+            while ((level = side.best()) != null)
+            {
+                for (Order order = level.head; order != null; )
+                {
+                    Order next = order.next;
+                    resting.remove(order.id);
+                    release(order);
+                    recycle(order);
+                    order = next;
+                }
+                removeLevel(side, level);
+            }
+        }
+    }
+
+    /** Best bid in ticks, or 0 if there are no bids. */
+    synchronized long bestBid()
+    {
+        PriceLevel best = bids.best();
+        return best == null ? 0 : best.priceTicks;
+    }
+
+    /** Best ask in ticks, or 0 if there are no asks. */
+    synchronized long bestAsk()
+    {
+        PriceLevel best = asks.best();
+        return best == null ? 0 : best.priceTicks;
+    }
+
+    /** Unfilled quantity resting at a price on one side. */
+    synchronized long depthAt(Side side, long priceTicks)
+    {
+        PriceLevel level = (side == Side.BUY ? bids : asks).find(priceTicks);
+        return level == null ? 0 : level.quantity;
+    }
+
+    synchronized int restingOrders()
+    {
+        return resting.size();
+    }
+
+    private void match(Order taker)
+    {
+        boolean buying = taker.side == Side.BUY;
+        BookSide opposite = buying ? asks : bids;
+        PriceLevel level;
+        while (taker.remaining > 0 && (level = opposite.best()) != null
+                && (buying ? level.priceTicks <= taker.priceTicks : level.priceTicks >= taker.priceTicks))
+        {
+            Order maker = level.head;
+            if (!maker.user.canTrade())
+            {
+                cancel(maker.user, maker.id); // its ledger has failed, so it can't be filled
+                continue;
+            }
+            long price = level.priceTicks;
+            int quantity = Math.min(taker.remaining, maker.remaining);
+            if (buying && taker.market)
+            {
+                quantity = (int) Math.min(quantity, taker.user.affordableShares(price));
+                if (quantity == 0 || !taker.user.reserveCash(Money.times(price, quantity)))
+                    break;
+            }
+
+            Order buy = buying ? taker : maker;
+            Order sell = buying ? maker : taker;
+            buy.user.settleBuy(stock, quantity, price, buy.market ? price : buy.priceTicks);
+            sell.user.settleSell(stock, quantity, price);
+
+            taker.remaining -= quantity;
+            maker.remaining -= quantity;
+            level.quantity -= quantity;
+            if (maker.remaining == 0)
+            {
+                resting.remove(maker.id);
+                level.unlink(maker);
+                recycle(maker);
+                if (level.head == null)
+                    removeLevel(opposite, level);
+            }
+            for (TradeListener listener : engine.listeners)
+                listener.onTrade(stock, buy.user, sell.user, quantity, price);
+        }
+    }
+
+    private void rest(Order order)
+    {
+        BookSide side = order.side == Side.BUY ? bids : asks;
+        PriceLevel level = side.find(order.priceTicks);
+        if (level == null)
+        {
+            level = takeLevel(order.priceTicks);
+            side.insert(level);
+        }
+        level.append(order);
+        resting.put(order);
+    }
+
+    // Returns whatever the unfilled part of an order still holds to its account
+    private void release(Order order)
+    {
+        if (order.remaining == 0)
+            return;
+        if (order.side == Side.SELL)
+            order.user.releaseShares(stock, order.remaining);
+        else if (!order.market)
+            order.user.releaseCash(Money.times(order.priceTicks, order.remaining));
+    }
+
+    private void removeLevel(BookSide side, PriceLevel level)
+    {
+        side.remove(level);
+        level.head = level.tail = null;
+        level.quantity = 0;
+        level.nextFree = freeLevels;
+        freeLevels = level;
+    }
+
+    private Order takeOrder()
+    {
+        Order order = freeOrders;
+        if (order == null)
+            return new Order();
+        freeOrders = order.next;
+        order.next = null;
+        return order;
+    }
+
+    private void recycle(Order order)
+    {
+        order.user = null;
+        order.level = null;
+        order.prev = null;
+        order.next = freeOrders;
+        freeOrders = order;
+    }
+
+    private PriceLevel takeLevel(long priceTicks)
+    {
+        PriceLevel level = freeLevels;
+        if (level == null)
+            level = new PriceLevel();
+        else
+            freeLevels = level.nextFree;
+        level.nextFree = null;
+        level.priceTicks = priceTicks;
+        return level;
+    }
+}
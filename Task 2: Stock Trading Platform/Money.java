@@ -0,0 +1,94 @@
+import java.math.BigInteger;
+
+/**
+ * Money is a long count of paise, so balances and costs add up exactly and
+ * the trading path never allocates. Rupee doubles only appear at the edges,
+ * in the price simulator.
+ */
+final class Money
+{
+    static final long PAISE_PER_RUPEE = 100;
+
+    private Money()
+    {
+    }
+
+    /** Rounds a rupee amount to the nearest paisa. */
+    static long ofRupees(double rupees)
+    {
+        return Math.round(rupees * PAISE_PER_RUPEE);
+    }
+
+    static double toRupees(long paise)
+    {
+        return (double) paise / PAISE_PER_RUPEE;
+    }
+
+    /** price * quantity; throws rather than wrapping on overflow. */
+    static long times(long paise, long quantity)
+    {
+        return Math.multiplyExact(paise, quantity);
+    }
+
+    /** a * b / c truncated toward zero, exact even when a * b doesn't fit in a long. */
+    static long mulDiv(long a, long b, long c)
+    {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0))
+            return low / c;
+        return BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).divide(BigInteger.valueOf(c)).longValueExact();
+    }
+
+    /** Parses "1500", "1500.5" or "-1500.25" exactly; more than two decimals is an error. */
+    static long parse(String text)
+    {
+        String s = text.trim();
+        boolean negative = s.startsWith("-");
+        if (negative || s.startsWith("+"))
+            s = s.substring(1);
+        int dot = s.indexOf('.');
+        String rupees = dot < 0 ? s : s.substring(0, dot);
+        String paise = dot < 0 ? "" : s.substring(dot + 1);
+        if ((rupees.isEmpty() && paise.isEmpty()) || paise.length() > 2 || !digits(rupees) || !digits(paise))
+            throw new NumberFormatException("Not an amount in rupees: " + text);
+        try
+        {
+            long amount = Math.multiplyExact(rupees.isEmpty() ? 0 : Long.parseLong(rupees), PAISE_PER_RUPEE);
+            amount = Math.addExact(amount, paise.isEmpty() ? 0 : Long.parseLong(paise) * (paise.length() == 1 ? 10 : 1));
+            return negative ? -amount : amount;
+        }
+        catch (ArithmeticException e)
+        {
+            throw new NumberFormatException("Amount too large: " + text);
+        }
+    }
+
+    private static boolean digits(String s)
+    {
+        for (int i = 0; i < s.length(); i++)
+            if (s.charAt(i) < '0' || s.charAt(i) > '9')
+                return false;
+        return true;
+    }
+
+    /** Formats paise as rupees with two decimals, e.g. 123456 as "1234.56". */
+    static String format(long paise)
+    {
+        long rupees = paise / PAISE_PER_RUPEE;
+        long fraction = Math.abs(paise % PAISE_PER_RUPEE);
+        StringBuilder sb = new StringBuilder(24);
+        if (paise < 0 && rupees == 0)
+            sb.append('-');
+        sb.append(rupees).append('.');
+        if (fraction < 10)
+            sb.append('0');
+        return sb.append(fraction).toString();
+    }
+
+    /** Like format, with an explicit sign for non-negative amounts. */
+    static String formatSigned(long paise)
+    {
+        return paise < 0 ? format(paise) : "+" + format(paise);
+    }
+}
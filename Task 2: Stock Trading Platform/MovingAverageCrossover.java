@@ -0,0 +1,50 @@
+/**
+ * Per symbol, holds {@code quantity} shares while the simple moving average
+ * of the last {@code fast} ticks is above that of the last {@code slow}, and
+ * is flat otherwise. Averages are kept as running sums over a ring of prices.
+ */
+class MovingAverageCrossover implements Strategy
+{
+    private final int fast, slow, quantity;
+    private long[][] window; // last slow prices per symbol
+    private long[] fastSum, slowSum, seen;
+    private boolean[] holding;
+
+    MovingAverageCrossover(int fast, int slow, int quantity)
+    {
+        if (fast <= 0 || fast >= slow)
+            throw new IllegalArgumentException("Need 0 < fast < slow, got " + fast + " and " + slow);
+        this.fast = fast;
+        this.slow = slow;
+        this.quantity = quantity;
+    }
+
+    @Override
+    public void start(Stock[] stocks)
+    {
+        window = new long[stocks.length][slow];
+        fastSum = new long[stocks.length];
+        slowSum = new long[stocks.length];
+        seen = new long[stocks.length];
+        holding = new boolean[stocks.length];
+    }
+
+    @Override
+    public void onTick(int symbol, Stock stock, long epochNanos, User account)
+    {
+        long[] w = window[symbol];
+        long n = seen[symbol]++;
+        long price = stock.price;
+        slowSum[symbol] += price - w[(int) (n % slow)];
+        fastSum[symbol] += price - (n >= fast ? w[(int) ((n - fast) % slow)] : 0);
+        w[(int) (n % slow)] = price;
+        if (n + 1 < slow)
+            return;
+        // fastSum / fast > slowSum / slow, without dividing
+        boolean up = fastSum[symbol] * slow > slowSum[symbol] * fast;
+        if (up && !holding[symbol])
+            holding[symbol] = account.buyStock(stock, quantity, epochNanos);
+        else if (!up && holding[symbol])
+            holding[symbol] = !account.sellStock(stock, quantity, epochNanos);
+    }
+}
@@ -0,0 +1,4 @@
+enum OrderType
+{
+    MARKET, LIMIT
+}
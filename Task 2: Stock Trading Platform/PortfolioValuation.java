@@ -0,0 +1,174 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Running valuation of one account's holdings. Market value, cost basis and
+ * P&L are adjusted by each fill and each price tick instead of being
+ * recomputed from the whole portfolio. Positions include shares reserved for
+ * resting sell orders, since they are still owned until filled. Guarded by
+ * the owning User.
+ */
+class PortfolioValuation
+{
+    static class Position
+    {
+        final Stock stock;
+        int quantity;
+        long costBasis; // what the shares still held cost, in paise
+        long markPrice;
+        private Position prev, next; // in the order the positions were opened
+
+        Position(Stock stock)
+        {
+            this.stock = stock;
+            this.markPrice = stock.price;
+        }
+
+        long marketValue()
+        {
+            return Money.times(markPrice, quantity);
+        }
+
+        long unrealizedPnl()
+        {
+            return marketValue() - costBasis;
+        }
+    }
+
+    // Indexed by SymbolRegistry id, so a fill or tick finds its position without hashing the ticker
+    private Position[] bySymbol = new Position[16];
+    private Position first, last;
+    private int size;
+    private long marketValue;
+    private long costBasis;
+    private long realizedPnl;
+
+    void bought(Stock stock, int quantity, long price)
+    {
+        Position p = position(stock);
+        if (p == null)
+            p = open(stock);
+        long cost = Money.times(price, quantity);
+        p.quantity += quantity;
+        p.costBasis += cost;
+        costBasis += cost;
+        marketValue += Money.times(p.markPrice, quantity);
+    }
+
+    /**
+     * Removes sold shares at their average cost. The cost taken out is
+     * truncated to whole paise and the remainder stays with the shares still
+     * held, so the last share sold takes exactly what is left.
+     */
+    void sold(Stock stock, int quantity, long price)
+    {
+        Position p = position(stock);
+        if (p == null)
+            return;
+        int sold = Math.min(quantity, p.quantity);
+        long cost = sold == p.quantity ? p.costBasis : Money.mulDiv(p.costBasis, sold, p.quantity);
+        realizedPnl += Money.times(price, sold) - cost;
+        marketValue -= Money.times(p.markPrice, sold);
+        costBasis -= cost;
+        if (sold == p.quantity)
+        {
+            close(p);
+            return;
+        }
+        p.quantity -= sold;
+        p.costBasis -= cost;
+    }
+
+    /** Revalues a position at a new price; returns false if the account doesn't hold the stock. */
+    boolean mark(Stock stock, long price)
+    {
+        Position p = position(stock);
+        if (p == null)
+            return false;
+        marketValue += Money.times(price - p.markPrice, p.quantity);
+        p.markPrice = price;
+        return true;
+    }
+
+    /** The open positions, oldest first. */
+    Iterable<Position> positions()
+    {
+        return () -> new Iterator<Position>()
+        {
+            private Position cursor = first;
+
+            @Override
+            public boolean hasNext()
+            {
+                return cursor != null;
+            }
+
+            @Override
+            public Position next()
+            {
+                if (cursor == null)
+                    throw new NoSuchElementException();
+                Position p = cursor;
+                cursor = p.next;
+                return p;
+            }
+        };
+    }
+
+    Position position(Stock stock)
+    {
+        return stock.id < bySymbol.length ? bySymbol[stock.id] : null;
+    }
+
+    /** Number of open positions. */
+    int size()
+    {
+        return size;
+    }
+
+    private Position open(Stock stock)
+    {
+        if (stock.id >= bySymbol.length)
+            bySymbol = Arrays.copyOf(bySymbol, Math.max(bySymbol.length * 2, stock.id + 1));
+        Position p = new Position(stock);
+        bySymbol[stock.id] = p;
+        p.prev = last;
+        if (last == null)
+            first = p;
+        else
+            last.next = p;
+        last = p;
+        size++;
+        return p;
+    }
+
+    private void close(Position p)
+    {
+        bySymbol[p.stock.id] = null;
+        if (p.prev == null)
+            first = p.next;
+        else
+            p.prev.next = p.next;
+        if (p.next == null)
+            last = p.prev;
+        else
+            p.next.prev = p.prev;
+        size--;
+    }
+
+    long marketValue()
+    {
+        return marketValue;
+    }
+
+    long unrealizedPnl()
+    {
+        return marketValue - costBasis;
+    }
+
+    long realizedPnl()
+    {
+        return realizedPnl;
+    }
+}
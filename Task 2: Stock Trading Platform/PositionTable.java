@@ -0,0 +1,109 @@
+/**
+ * Shares held per symbol, keyed by SymbolRegistry id. An open-addressed
+ * table with linear probing: each slot is one long holding id + 1 in the
+ * high half and the quantity in the low half, so 0 marks an empty slot and
+ * a lookup or update touches no objects. A position that reaches zero is
+ * removed by shifting later entries of its probe run back, so the table
+ * only ever holds what the account actually owns. Not thread-safe; guarded
+ * by the owning User.
+ */
+final class PositionTable
+{
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] slots = new long[MIN_CAPACITY];
+    private int size;
+
+    /** Shares held in the symbol, 0 if none. */
+    int get(int symbolId)
+    {
+        long[] table = slots;
+        int mask = table.length - 1;
+        long key = key(symbolId);
+        for (int i = slot(symbolId, mask); ; i = (i + 1) & mask)
+        {
+            long entry = table[i];
+            if (entry == 0)
+                return 0;
+            if ((entry & ~0xFFFF_FFFFL) == key)
+                return (int) entry;
+        }
+    }
+
+    /** Adds {@code delta} shares (negative to take away) and drops the position if it reaches zero. */
+    void add(int symbolId, int delta)
+    {
+        if (delta == 0)
+            return;
+        int mask = slots.length - 1;
+        long key = key(symbolId);
+        int i = slot(symbolId, mask);
+        for (; slots[i] != 0; i = (i + 1) & mask)
+        {
+            if ((slots[i] & ~0xFFFF_FFFFL) != key)
+                continue;
+            int quantity = (int) slots[i] + delta;
+            if (quantity == 0)
+                remove(i);
+            else
+                slots[i] = key | (quantity & 0xFFFF_FFFFL);
+            return;
+        }
+        slots[i] = key | (delta & 0xFFFF_FFFFL);
+        if (++size * 2 > slots.length)
+            resize(slots.length * 2);
+    }
+
+    /** Number of symbols with a non-zero position. */
+    int size()
+    {
+        return size;
+    }
+
+    private static long key(int symbolId)
+    {
+        return (long) (symbolId + 1) << 32;
+    }
+
+    private static int slot(int symbolId, int mask)
+    {
+        int h = symbolId * 0x9E3779B9;
+        return (h ^ h >>> 16) & mask;
+    }
+
+    // Backward-shift deletion: pull later entries of the probe run into the hole so lookups never stop early
+    private void remove(int hole)
+    {
+        int mask = slots.length - 1;
+        for (int i = (hole + 1) & mask; slots[i] != 0; i = (i + 1) & mask)
+        {
+            int home = slot((int) (slots[i] >>> 32) - 1, mask);
+            // Move the entry unless its home lies cyclically in (hole, i]
+            if (((i - home) & mask) >= ((i - hole) & mask))
+            {
+                slots[hole] = slots[i];
+                hole = i;
+            }
+        }
+        slots[hole] = 0;
+        size--;
+        if (slots.length > MIN_CAPACITY && size * 8 < slots.length)
+            resize(slots.length / 2);
+    }
+
+    private void resize(int capacity)
+    {
+        long[] old = slots;
+        slots = new long[capacity];
+        int mask = capacity - 1;
+        for (long entry : old)
+        {
+            if (entry == 0)
+                continue;
+            int i = slot((int) (entry >>> 32) - 1, mask);
+            while (slots[i] != 0)
+                i = (i + 1) & mask;
+            slots[i] = entry;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a PriceSource on a background thread, writes each tick into the
+ * (volatile) Stock.price and fans it out to listeners. The stock map itself is
+ * never modified after start-up, so readers need no locks.
+ */
+class PriceFeed
+{
+    private final PriceSource source;
+    private final long ticksPerSecond; // pacing for sources without their own timing; 0 = unpaced
+    private final List<PriceListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+    private Thread thread;
+
+    PriceFeed(PriceSource source, long ticksPerSecond)
+    {
+        this.source = source;
+        this.ticksPerSecond = ticksPerSecond;
+    }
+
+    void addListener(PriceListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    synchronized void start()
+    {
+        if (running)
+            return;
+        running = true;
+        thread = new Thread(this::run, "price-feed");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    synchronized void stop()
+    {
+        running = false;
+        if (thread != null)
+            thread.interrupt();
+    }
+
+    private void run()
+    {
+        PriceSource.Tick tick = new PriceSource.Tick();
+        long interval = ticksPerSecond > 0 ? 1_000_000_000L / ticksPerSecond : 0;
+        long due = System.nanoTime();
+        try
+        {
+            while (running && source.next(tick))
+            {
+                due += tick.delayNanos > 0 ? tick.delayNanos : interval;
+                long wait = due - System.nanoTime();
+                if (wait > 0)
+                    LockSupport.parkNanos(wait);
+                else if (wait < -1_000_000_000L)
+                    due = System.nanoTime(); // fell far behind; don't try to catch up in a burst
+                tick.stock.price = tick.price;
+                for (PriceListener listener : listeners)
+                    listener.onPrice(tick.stock, tick.price, tick.timestampNanos);
+            }
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            running = false;
+            try
+            {
+                source.close();
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Receives every price change published by a PriceFeed, stamped with its
+ * time in epoch nanoseconds.
+ */
+interface PriceListener
+{
+    void onPrice(Stock stock, long price, long timestampNanos);
+}
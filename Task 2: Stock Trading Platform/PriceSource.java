@@ -0,0 +1,25 @@
+import java.io.IOException;
+
+/**
+ * A stream of price ticks. Sources are pulled by a single PriceFeed thread.
+ */
+interface PriceSource
+{
+    /**
+     * Writes the next tick into {@code tick}. Returns false when the source is exhausted.
+     */
+    boolean next(Tick tick) throws IOException;
+
+    default void close() throws IOException
+    {
+    }
+
+    /** Mutable holder reused for every tick so the feed loop does not allocate. */
+    class Tick
+    {
+        Stock stock;
+        long price; // paise
+        long timestampNanos; // epoch nanos
+        long delayNanos; // how long after the previous tick this one is due, when replaying
+    }
+}
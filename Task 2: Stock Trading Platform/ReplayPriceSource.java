@@ -0,0 +1,68 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays ticks from a CSV file of "epochMillis,symbol,price" lines. Gaps between
+ * timestamps are divided by {@code speed}; a speed of 0 replays as fast as possible.
+ * Unknown symbols, malformed lines and prices of zero or less are skipped.
+ */
+class ReplayPriceSource implements PriceSource
+{
+    private final BufferedReader reader;
+    private final Map<String, Stock> stockMap;
+    private final double speed;
+    private long lastMillis = -1;
+
+    ReplayPriceSource(Path file, Map<String, Stock> stockMap, double speed) throws IOException
+    {
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        this.stockMap = stockMap;
+        this.speed = speed;
+    }
+
+    @Override
+    public boolean next(Tick tick) throws IOException
+    {
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            String[] parts = line.split(",");
+            if (parts.length != 3)
+                continue;
+            Stock stock = stockMap.get(parts[1].trim());
+            if (stock == null)
+                continue;
+            long millis;
+            long price;
+            try
+            {
+                millis = Long.parseLong(parts[0].trim());
+                price = Money.parse(parts[2]);
+            }
+            catch (NumberFormatException e)
+            {
+                continue; // skip malformed line
+            }
+            if (price <= 0)
+                continue; // nothing trades or is valued at a price of zero or less
+            tick.stock = stock;
+            tick.price = price;
+            tick.timestampNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+            tick.delayNanos = lastMillis < 0 || speed <= 0 ? 0 : (long) (TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis - lastMillis)) / speed);
+            lastMillis = millis;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+}
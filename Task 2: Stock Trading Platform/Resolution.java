@@ -0,0 +1,24 @@
+/** Bar lengths kept by a BarAggregator, with how many recent bars of each stay in memory. */
+enum Resolution
+{
+    SECOND("1s", 1_000_000_000L, 900),
+    MINUTE("1m", 60_000_000_000L, 600),
+    HOUR("1h", 3_600_000_000_000L, 168);
+
+    final String label;
+    final long nanos;
+    final int inMemory;
+
+    Resolution(String label, long nanos, int inMemory)
+    {
+        this.label = label;
+        this.nanos = nanos;
+        this.inMemory = inMemory;
+    }
+
+    @Override
+    public String toString()
+    {
+        return label;
+    }
+}
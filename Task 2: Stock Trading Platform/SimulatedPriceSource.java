@@ -0,0 +1,56 @@
+import java.util.Collection;
+import java.util.SplittableRandom;
+
+/**
+ * Simulated market: each symbol follows geometric Brownian motion,
+ * S' = S * exp((mu - sigma^2 / 2) dt + sigma * sqrt(dt) * Z), one symbol per tick in turn.
+ */
+class SimulatedPriceSource implements PriceSource
+{
+    private final Stock[] stocks;
+    private final double[] prices;
+    private final double drift;
+    private final double volatility;
+    private final double dt;
+    private final SplittableRandom random;
+    private int next;
+
+    /**
+     * @param drift      annualised drift (mu)
+     * @param volatility annualised volatility (sigma)
+     * @param dtYears    simulated time that passes per tick of one symbol
+     */
+    SimulatedPriceSource(Collection<Stock> stocks, double drift, double volatility, double dtYears, long seed)
+    {
+        this.stocks = stocks.toArray(new Stock[0]);
+        this.prices = new double[this.stocks.length];
+        for (int i = 0; i < prices.length; i++)
+            prices[i] = Money.toRupees(this.stocks[i].price);
+        this.drift = drift;
+        this.volatility = volatility;
+        this.dt = dtYears;
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public boolean next(Tick tick)
+    {
+        int i = next;
+        next = (next + 1) % stocks.length;
+        double z = gaussian();
+        prices[i] *= Math.exp((drift - volatility * volatility / 2) * dt + volatility * Math.sqrt(dt) * z);
+        tick.stock = stocks[i];
+        tick.price = Math.max(1, Money.ofRupees(prices[i])); // published in whole paise
+        tick.timestampNanos = TradeLedger.epochNanos();
+        tick.delayNanos = 0;
+        return true;
+    }
+
+    // Box-Muller; SplittableRandom has no nextGaussian
+    private double gaussian()
+    {
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+    }
+}
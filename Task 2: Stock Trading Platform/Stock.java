@@ -0,0 +1,20 @@
+class Stock
+{
+    String symbol;
+    final int id; // SymbolRegistry id of the symbol
+    String name;
+    volatile long price; // paise; updated by the price feed thread
+
+    Stock(String symbol, String name, long price)
+    {
+        this.symbol = symbol;
+        this.id = SymbolRegistry.id(symbol);
+        this.name = name;
+        this.price = price;
+    }
+
+    public String toString()
+    {
+        return symbol + " - " + name + " @ \u20B9" + Money.format(price);
+    }
+}
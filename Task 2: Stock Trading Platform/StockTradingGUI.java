@@ -1,117 +1,18 @@
 import javax.swing.*;
+import javax.swing.Timer;
 import java.awt.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-
-/**
- * The Transaction class holds data for a single trade.
- */
-class Transaction
-{
-    String type;
-    String symbol;
-    int quantity;
-    double price;
-    LocalDateTime timestamp;
-    private static final DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-    Transaction(String type, String symbol, int quantity, double price)
-    {
-        this.type = type;
-        this.symbol = symbol;
-        this.quantity = quantity;
-        this.price = price;
-        this.timestamp = LocalDateTime.now();
-    }
-
-    @Override
-    public String toString()
-    {
-        return String.format("[%s] %-4s %d %s @ \u20B9%.2f",
-                dtf.format(timestamp), type, quantity, symbol, price);
-    }
-}
-
-class Stock
-{
-    String symbol;
-    String name;
-    double price;
-
-    Stock(String symbol, String name, double price)
-    {
-        this.symbol = symbol;
-        this.name = name;
-        this.price = price;
-    }
-
-    public String toString()
-    {
-        return symbol + " - " + name + " @ \u20B9" + price;
-    }
-}
-
-class User
-{
-    String name;
-    double balance;
-    Map<String, Integer> portfolio;
-    ArrayList<Transaction> transactionHistory;
-
-    User(String name, double balance)
-    {
-        this.name = name;
-        this.balance = balance;
-        this.portfolio = new HashMap<>();
-        this.transactionHistory = new ArrayList<>();
-    }
-
-    public boolean buyStock(Stock stock, int quantity)
-    {
-        double cost = stock.price * quantity;
-        if (cost > balance)
-            return false;
-        balance -= cost;
-        portfolio.put(stock.symbol, portfolio.getOrDefault(stock.symbol, 0) + quantity);
-        transactionHistory.add(new Transaction("BUY", stock.symbol, quantity, stock.price));
-        return true;
-    }
-
-    public boolean sellStock(Stock stock, int quantity)
-    {
-        int owned = portfolio.getOrDefault(stock.symbol, 0);
-        if (quantity > owned)
-            return false;
-        portfolio.put(stock.symbol, owned - quantity);
-        balance += stock.price * quantity;
-        transactionHistory.add(new Transaction("SELL", stock.symbol, quantity, stock.price));
-        return true;
-    }
-
-    public String getPortfolioString(Map<String, Stock> stockMap)
-    {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Portfolio of ").append(name).append(":\n\n");
-        double totalValue = 0;
-        for (String sym : portfolio.keySet())
-        {
-            int qty = portfolio.get(sym);
-            if (qty == 0)
-                continue;
-            
-            Stock s = stockMap.get(sym);
-            double value = qty * s.price;
-            sb.append(String.format("%s: %d shares @ \u20B9%.2f = \u20B9%.2f\n", sym, qty, s.price, value));
-            totalValue += value;
-        }
-        sb.append(String.format("\nCash Balance: \u20B9%.2f", balance));
-        sb.append(String.format("\nTotal Portfolio Value: \u20B9%.2f", (balance + totalValue)));
-        return sb.toString();
-    }
-}
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class StockTradingGUI
 {
@@ -120,25 +21,61 @@ public class StockTradingGUI
     private JPanel mainContainer;
     private CardLayout cardLayout;
     private JTextArea output;
+    private CardLayout outputLayout;
+    private JPanel outputCards;
+    private JTable historyTable;
+    private JComboBox<String> historySymbol;
+    private JTextField historyFrom, historyTo;
+    private JLabel historyStatus;
+    private BarChart chart;
+    private JComboBox<Resolution> chartResolution;
     private JComboBox<String> stockDropdown;
     private JTextField quantityField;
 
     // Data
     private Map<String, Stock> stockMap = new HashMap<>();
+    private TradingService trading;
     private User user;
+    private final List<PlacedOrder> placedOrders = new ArrayList<>(); // limit orders placed this session, oldest first
+
+    private static final String LEDGER_DIRECTORY = "ledger";
+    private static final String BAR_DIRECTORY = "bars";
+
+    // Live prices
+    private static final int FEED_TICKS_PER_SECOND = 2000;
+    private static final int MARKET_REFRESH_MILLIS = 250;
+    private PriceFeed priceFeed;
+    private BarAggregator bars;
+    private final TriggerEngine triggers = new TriggerEngine();
+    private final AtomicBoolean pricesDirty = new AtomicBoolean();
+    private Runnable liveView; // the view to redraw on ticks, or null
 
     // Panel Identifiers
     private static final String LOGIN_PANEL = "LoginPanel";
     private static final String TRADING_PANEL = "TradingPanel";
+    private static final String TEXT_OUTPUT = "TextOutput";
+    private static final String HISTORY_OUTPUT = "HistoryOutput";
+    private static final String CHART_OUTPUT = "ChartOutput";
+    private static final String ALL_SYMBOLS = "All symbols";
 
     public void main()
     {
         addStocks();
+        trading = new TradingService(stockMap, Paths.get(LEDGER_DIRECTORY));
+        Runtime.getRuntime().addShutdownHook(new Thread(trading::close));
+        bars = new BarAggregator(Paths.get(BAR_DIRECTORY));
+        trading.engine.addListener(bars);
+        Runtime.getRuntime().addShutdownHook(new Thread(bars::close));
+        triggers.addListener((trigger, price, executed) ->
+        {
+            if (trigger.user == user)
+                SwingUtilities.invokeLater(() -> showTriggered(trigger, price, executed));
+        });
 
         // --- Main Frame Setup ---
         frame = new JFrame("Stock Trading Platform");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setSize(650, 550);
+        frame.setSize(800, 550); // wide enough for the row of action buttons
 
         // --- CardLayout Container ---
         cardLayout = new CardLayout();
@@ -201,7 +138,6 @@ public class StockTradingGUI
         errorLabel.setForeground(Color.RED);
         errorLabel.setHorizontalAlignment(SwingConstants.CENTER);
 
-
         // --- Layout ---
         gbc.gridx = 0; gbc.gridy = 0; gbc.gridwidth = 2;
         panel.add(titleLabel, gbc);
@@ -223,7 +159,6 @@ public class StockTradingGUI
         gbc.gridx = 0; gbc.gridy = 4; gbc.gridwidth = 2;
         panel.add(errorLabel, gbc);
 
-
         // --- Action Listener ---
         startButton.addActionListener(e ->{
             String name = nameField.getText().trim();
@@ -236,21 +171,26 @@ public class StockTradingGUI
 
             try
             {
-                double balance = Double.parseDouble(balanceStr);
+                long balance = Money.parse(balanceStr);
                 if (balance < 0)
                 {
                      errorLabel.setText("Balance must be a positive number.");
                     return;
                 }
                 // --- On Success ---
-                user = new User(name, balance);
+                user = trading.openAccount(name, balance);
                 frame.setTitle("Stock Trading Platform - " + user.name);
                 showMarket(); // Pre-load market data in the output
                 cardLayout.show(mainContainer, TRADING_PANEL); // Switch to trading panel
+                startPriceFeed();
             }
             catch (NumberFormatException ex)
             {
-                errorLabel.setText("Please enter a valid number for the balance.");
+                errorLabel.setText("Please enter the balance in rupees, e.g. 100000 or 2500.50.");
+            }
+            catch (UncheckedIOException ex)
+            {
+                errorLabel.setText("Could not open the account ledger: " + ex.getCause().getMessage());
             }
         });
 
@@ -302,10 +242,13 @@ public class StockTradingGUI
         JButton viewMarketButton = new JButton("View Market");
         JButton portfolioButton = new JButton("View Portfolio");
         JButton transactionsButton = new JButton("Transactions");
+        JButton chartButton = new JButton("Chart");
+        JButton triggerButton = new JButton("Trigger");
+        JButton orderButton = new JButton("Order");
 
         JPanel buttonPanel = new JPanel();
         buttonPanel.setBackground(darkBackground);
-        JButton[] buttons = {buyButton, sellButton, viewMarketButton, portfolioButton, transactionsButton};
+        JButton[] buttons = {buyButton, sellButton, orderButton, viewMarketButton, portfolioButton, transactionsButton, chartButton, triggerButton};
         for (JButton b : buttons)
         {
             b.setFont(mainFont);
@@ -325,6 +268,14 @@ public class StockTradingGUI
         output.setWrapStyleWord(true);
         JScrollPane scroll = new JScrollPane(output);
 
+        // --- Transaction History (paged table) ---
+        JPanel historyPanel = createHistoryPanel(darkBackground, componentBg, greenText, mainFont);
+        outputLayout = new CardLayout();
+        outputCards = new JPanel(outputLayout);
+        outputCards.add(scroll, TEXT_OUTPUT);
+        outputCards.add(historyPanel, HISTORY_OUTPUT);
+        outputCards.add(createChartPanel(darkBackground, componentBg, greenText, mainFont), CHART_OUTPUT);
+
         // --- Add components to main panel ---
         panel.add(Box.createRigidArea(new Dimension(0, 10)));
         panel.add(stockLabel);
@@ -335,7 +286,7 @@ public class StockTradingGUI
         panel.add(Box.createRigidArea(new Dimension(0, 20)));
         panel.add(buttonPanel);
         panel.add(Box.createRigidArea(new Dimension(0, 10)));
-        panel.add(scroll);
+        panel.add(outputCards);
 
         // --- Action Listeners ---
         buyButton.addActionListener(e -> handleBuy());
@@ -343,16 +294,130 @@ public class StockTradingGUI
         viewMarketButton.addActionListener(e -> showMarket());
         portfolioButton.addActionListener(e -> showPortfolio());
         transactionsButton.addActionListener(e -> showTransactions());
+        chartButton.addActionListener(e -> showChart());
+        triggerButton.addActionListener(e -> handleTrigger());
+        orderButton.addActionListener(e -> handleOrder());
+
+        return panel;
+    }
 
+    /** Candlestick chart of the selected stock, with a choice of bar length. */
+    private JPanel createChartPanel(Color background, Color componentBg, Color foreground, Font font)
+    {
+        chart = new BarChart(bars);
+        chartResolution = new JComboBox<>(Resolution.values());
+        chartResolution.setFont(font);
+        chartResolution.setBackground(componentBg);
+        chartResolution.setForeground(foreground);
+        JLabel label = new JLabel("Bars:");
+        label.setForeground(foreground);
+
+        JPanel controls = new JPanel();
+        controls.setBackground(background);
+        controls.add(label);
+        controls.add(chartResolution);
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBackground(background);
+        panel.add(controls, BorderLayout.NORTH);
+        panel.add(chart, BorderLayout.CENTER);
+
+        chartResolution.addActionListener(e -> showChart());
+        return panel;
+    }
+
+    /**
+     * History table plus symbol and date filters. The table model only reads
+     * and formats the rows being painted.
+     */
+    private JPanel createHistoryPanel(Color background, Color componentBg, Color foreground, Font font)
+    {
+        historySymbol = new JComboBox<>();
+        historySymbol.addItem(ALL_SYMBOLS);
+        for (String symbol : stockMap.keySet())
+            historySymbol.addItem(symbol);
+        historyFrom = new JTextField(8);
+        historyTo = new JTextField(8);
+        historyFrom.setToolTipText("yyyy-MM-dd, blank for no limit");
+        historyTo.setToolTipText("yyyy-MM-dd (inclusive), blank for no limit");
+        JButton apply = new JButton("Filter");
+        historyStatus = new JLabel(" ");
+        historyStatus.setForeground(foreground);
+
+        JPanel filters = new JPanel();
+        filters.setBackground(background);
+        JLabel fromLabel = new JLabel("From:");
+        JLabel toLabel = new JLabel("To:");
+        fromLabel.setForeground(foreground);
+        toLabel.setForeground(foreground);
+        filters.add(historySymbol);
+        filters.add(fromLabel);
+        filters.add(historyFrom);
+        filters.add(toLabel);
+        filters.add(historyTo);
+        filters.add(apply);
+
+        historyTable = new JTable();
+        historyTable.setFont(font);
+        historyTable.setBackground(new Color(20, 20, 20));
+        historyTable.setForeground(foreground);
+        historyTable.setFillsViewportHeight(true);
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBackground(background);
+        panel.add(filters, BorderLayout.NORTH);
+        panel.add(new JScrollPane(historyTable), BorderLayout.CENTER);
+        panel.add(historyStatus, BorderLayout.SOUTH);
+
+        apply.addActionListener(e -> showTransactions());
+        historySymbol.addActionListener(e -> showTransactions());
         return panel;
     }
 
     private void addStocks()
     {
-        stockMap.put("TCS", new Stock("TCS", "Tata Consultancy Services", 3700.0));
-        stockMap.put("INFY", new Stock("INFY", "Infosys", 1500.0));
-        stockMap.put("RELI", new Stock("RELI", "Reliance Industries", 2500.0));
-        stockMap.put("HDFC", new Stock("HDFC", "HDFC Bank", 1600.0));
+        stockMap.put("TCS", new Stock("TCS", "Tata Consultancy Services", Money.ofRupees(3700)));
+        stockMap.put("INFY", new Stock("INFY", "Infosys", Money.ofRupees(1500)));
+        stockMap.put("RELI", new Stock("RELI", "Reliance Industries", Money.ofRupees(2500)));
+        stockMap.put("HDFC", new Stock("HDFC", "HDFC Bank", Money.ofRupees(1600)));
+    }
+
+    /**
+     * Starts the price feed: a replay of the file named by -Dfeed.replay if given,
+     * otherwise the simulated market. Ticks revalue every account, feed the
+     * bar aggregator, fire triggers and mark the prices dirty; a Swing timer
+     * redraws the market, portfolio or chart view, if one is showing, at most
+     * every MARKET_REFRESH_MILLIS.
+     */
+    private void startPriceFeed()
+    {
+        if (priceFeed != null)
+            return;
+        PriceSource source;
+        String replayFile = System.getProperty("feed.replay");
+        try
+        {
+            source = replayFile != null
+                    ? new ReplayPriceSource(Paths.get(replayFile), stockMap, Double.parseDouble(System.getProperty("feed.speed", "1")))
+                    : new SimulatedPriceSource(stockMap.values(), 0.05, 0.25, 1.0 / (252 * 6.5 * 3600), System.nanoTime());
+        }
+        catch (IOException e)
+        {
+            show("Could not open price replay file: " + e.getMessage());
+            return;
+        }
+        priceFeed = new PriceFeed(source, replayFile != null ? 0 : FEED_TICKS_PER_SECOND);
+        priceFeed.addListener(trading);
+        priceFeed.addListener(bars);
+        priceFeed.addListener(triggers);
+        priceFeed.addListener((stock, price, timestampNanos) -> pricesDirty.set(true));
+        priceFeed.start();
+
+        new Timer(MARKET_REFRESH_MILLIS, e ->
+        {
+            if (pricesDirty.getAndSet(false) && liveView != null)
+                liveView.run();
+        }).start();
     }
 
     private void handleBuy()
@@ -364,13 +429,20 @@ public class StockTradingGUI
             show("Invalid quantity. Please enter a positive number.");
             return;
         }
-        if (user.buyStock(stockMap.get(symbol), qty))
+        try
         {
-            show("Successfully bought " + qty + " shares of " + symbol + ".\n\n" + user.getPortfolioString(stockMap));
+            if (user.buyStock(stockMap.get(symbol), qty))
+            {
+                show("Successfully bought " + qty + " shares of " + symbol + ".\n\n" + user.getPortfolioString());
+            }
+            else
+            {
+                show("Not enough balance to buy " + qty + " shares of " + symbol + ".");
+            }
         }
-        else
+        catch (UncheckedIOException ex)
         {
-            show("Not enough balance to buy " + qty + " shares of " + symbol + ".");
+            showLedgerFailure(ex);
         }
     }
 
@@ -383,16 +455,189 @@ public class StockTradingGUI
             show("Invalid quantity. Please enter a positive number.");
             return;
         }
-        if (user.sellStock(stockMap.get(symbol), qty))
+        try
+        {
+            if (user.sellStock(stockMap.get(symbol), qty))
+            {
+                show("Successfully sold " + qty + " shares of " + symbol + ".\n\n" + user.getPortfolioString());
+            }
+            else
+            {
+                show("You do not own enough shares of " + symbol + " to sell.");
+            }
+        }
+        catch (UncheckedIOException ex)
         {
-            show("Successfully sold " + qty + " shares of " + symbol + ".\n\n" + user.getPortfolioString(stockMap));
+            showLedgerFailure(ex);
         }
+    }
+
+    /**
+     * Sets a stop loss, take profit or price alert on the selected stock. Stop
+     * loss and take profit sell the quantity entered above when they fire.
+     */
+    private void handleTrigger()
+    {
+        Stock stock = stockMap.get((String) stockDropdown.getSelectedItem());
+        String[] kinds = {"Stop loss", "Take profit", "Alert above", "Alert below"};
+        String kind = (String) JOptionPane.showInputDialog(frame, "Trigger on " + stock.symbol + " (now \u20B9" + Money.format(stock.price) + "):",
+                "Set Trigger", JOptionPane.PLAIN_MESSAGE, null, kinds, kinds[0]);
+        if (kind == null)
+            return;
+        String levelText = JOptionPane.showInputDialog(frame, kind + " price (\u20B9):", Money.format(stock.price));
+        if (levelText == null)
+            return;
+        long level;
+        try
+        {
+            level = Money.parse(levelText.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            show("Invalid price. Please enter rupees, e.g. 3650 or 3650.50.");
+            return;
+        }
+        int qty = kind.startsWith("Alert") ? 0 : parseQuantity();
+        if (!kind.startsWith("Alert") && qty <= 0)
+        {
+            show("Invalid quantity. Please enter a positive number.");
+            return;
+        }
+        switch (kind)
+        {
+            case "Stop loss":
+                triggers.addStopLoss(user, stock, qty, level);
+                break;
+            case "Take profit":
+                triggers.addTakeProfit(user, stock, qty, level);
+                break;
+            case "Alert above":
+                triggers.addAlert(user, stock, Crossing.AT_OR_ABOVE, level);
+                break;
+            default:
+                triggers.addAlert(user, stock, Crossing.AT_OR_BELOW, level);
+        }
+        show(kind + " set on " + stock.symbol + " at \u20B9" + Money.format(level) + (qty > 0 ? " for " + qty + " shares" : "")
+                + ". It fires on the first price that reaches it.");
+    }
+
+    /**
+     * Places a limit or market order for the quantity entered above on the
+     * selected stock's order book, or cancels a limit order placed earlier.
+     * Cash for a limit buy and shares for a sell are held until the order
+     * fills or is cancelled.
+     */
+    private void handleOrder()
+    {
+        Stock stock = stockMap.get((String) stockDropdown.getSelectedItem());
+        String[] kinds = {"Limit buy", "Limit sell", "Market buy", "Market sell", "Cancel order"};
+        String kind = (String) JOptionPane.showInputDialog(frame, "Order on " + stock.symbol + " (now \u20B9" + Money.format(stock.price) + "):",
+                "Place Order", JOptionPane.PLAIN_MESSAGE, null, kinds, kinds[0]);
+        if (kind == null)
+            return;
+        if (kind.equals("Cancel order"))
+        {
+            cancelOrder();
+            return;
+        }
+        int qty = parseQuantity();
+        if (qty <= 0)
+        {
+            show("Invalid quantity. Please enter a positive number.");
+            return;
+        }
+        Side side = kind.endsWith("buy") ? Side.BUY : Side.SELL;
+        OrderType type = kind.startsWith("Limit") ? OrderType.LIMIT : OrderType.MARKET;
+        long limit = 0;
+        if (type == OrderType.LIMIT)
+        {
+            String limitText = JOptionPane.showInputDialog(frame, kind + " price (\u20B9):", Money.format(stock.price));
+            if (limitText == null)
+                return;
+            try
+            {
+                limit = Money.parse(limitText.trim());
+            }
+            catch (NumberFormatException e)
+            {
+                show("Invalid price. Please enter rupees, e.g. 3650 or 3650.50.");
+                return;
+            }
+        }
+        long id;
+        try
+        {
+            id = trading.placeOrder(user.name, stock.symbol, side, type, qty, limit);
+        }
+        catch (UncheckedIOException ex)
+        {
+            showLedgerFailure(ex);
+            return;
+        }
+        if (id == MatchingEngine.REJECTED)
+        {
+            if (!user.canTrade())
+                show("Order refused: the account ledger could not be written.\nNo further trades are accepted for this account.");
+            else
+                show(side == Side.BUY ? "Not enough balance for this order." : "You do not own enough shares of " + stock.symbol + " to sell.");
+            return;
+        }
+        String what = kind + " of " + qty + " " + stock.symbol + (type == OrderType.LIMIT ? " at \u20B9" + Money.format(limit) : "");
+        if (type == OrderType.LIMIT)
+            placedOrders.add(new PlacedOrder(id, stock.symbol, what));
+        show("Order #" + id + " placed: " + what + "."
+                + (type == OrderType.MARKET ? " Any part not matched at once was cancelled." : " Any part not matched rests on the book.")
+                + "\n\n" + user.getPortfolioString());
+    }
+
+    private void cancelOrder()
+    {
+        if (placedOrders.isEmpty())
+        {
+            show("You have no limit orders to cancel.");
+            return;
+        }
+        PlacedOrder[] choices = placedOrders.toArray(new PlacedOrder[0]);
+        PlacedOrder order = (PlacedOrder) JOptionPane.showInputDialog(frame, "Cancel which order?", "Cancel Order",
+                JOptionPane.PLAIN_MESSAGE, null, choices, choices[0]);
+        if (order == null)
+            return;
+        placedOrders.remove(order);
+        if (trading.cancelOrder(user.name, order.symbol, order.id))
+            show("Order #" + order.id + " cancelled; what was still open has been released.\n\n" + user.getPortfolioString());
         else
+            show("Order #" + order.id + " had already filled.");
+    }
+
+    /** A limit order placed from the GUI, as listed when cancelling. */
+    private static final class PlacedOrder
+    {
+        final long id;
+        final String symbol;
+        final String description;
+
+        PlacedOrder(long id, String symbol, String description)
         {
-            show("You do not own enough shares of " + symbol + " to sell.");
+            this.id = id;
+            this.symbol = symbol;
+            this.description = description;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "#" + id + " " + description;
         }
     }
 
+    private void showTriggered(Trigger trigger, long price, boolean executed)
+    {
+        String text = trigger + " fired at \u20B9" + Money.format(price) + ".";
+        if (trigger.side != null)
+            text += executed ? "\n\n" + user.getPortfolioString() : "\nThe order could not be executed.";
+        show(text);
+    }
+
     private void showMarket()
     {
         StringBuilder sb = new StringBuilder();
@@ -402,35 +647,66 @@ public class StockTradingGUI
             sb.append(s).append("\n");
         }
         show(sb.toString());
+        liveView = this::showMarket;
     }
 
     private void showPortfolio()
     {
-        show(user.getPortfolioString(stockMap));
+        show(user.getPortfolioString());
+        liveView = this::showPortfolio;
     }
 
+    /** Opens the history table on the current filters; cost doesn't depend on how many trades there are. */
     private void showTransactions()
     {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Transaction History for ").append(user.name).append(":\n\n");
-        if (user.transactionHistory.isEmpty())
+        String symbol = (String) historySymbol.getSelectedItem();
+        long from, to;
+        try
         {
-            sb.append("No transactions have been made yet.");
+            from = historyBound(historyFrom.getText(), 0, Long.MIN_VALUE);
+            to = historyBound(historyTo.getText(), 1, Long.MAX_VALUE);
         }
-        else
+        catch (DateTimeParseException e)
         {
-            for (int i = user.transactionHistory.size() - 1; i >= 0; i--)
-            {
-                sb.append(user.transactionHistory.get(i).toString()).append("\n");
-            }
+            historyStatus.setText("Dates must be yyyy-MM-dd.");
+            return;
         }
-        show(sb.toString());
+        TradeHistory.View view = user.history.view(ALL_SYMBOLS.equals(symbol) ? null : symbol, from, to);
+        historyTable.setModel(new TradeHistoryTableModel(user, view));
+        historyStatus.setText(view.size() == 0 ? "No transactions have been made yet." : view.size() + " transactions");
+        liveView = null;
+        outputLayout.show(outputCards, HISTORY_OUTPUT);
+    }
+
+    /** Charts the stock selected above; redrawn with the live prices, following the selection. */
+    private void showChart()
+    {
+        chart.show(stockMap.get((String) stockDropdown.getSelectedItem()), (Resolution) chartResolution.getSelectedItem());
+        outputLayout.show(outputCards, CHART_OUTPUT);
+        liveView = this::showChart;
+    }
+
+    // Start of the given day (plus dayOffset days) in epoch nanos, or the default when blank
+    private static long historyBound(String text, int dayOffset, long unbounded)
+    {
+        if (text.trim().isEmpty())
+            return unbounded;
+        Instant start = LocalDate.parse(text.trim()).plusDays(dayOffset).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        return start.getEpochSecond() * 1_000_000_000L + start.getNano();
+    }
+
+    private void showLedgerFailure(UncheckedIOException ex)
+    {
+        show("Trade refused: the account ledger could not be written (" + ex.getCause().getMessage() + ").\n"
+                + "No further trades are accepted for this account.");
     }
 
     private void show(String text)
     {
+        liveView = null;
         if(output != null)
         {
+            outputLayout.show(outputCards, TEXT_OUTPUT);
             output.setText(text);
             output.setCaretPosition(0);
         }
@@ -0,0 +1,16 @@
+/**
+ * A trading strategy under backtest. Each run gets its own instance, its own
+ * Stocks and its own User, so implementations need no synchronization.
+ */
+interface Strategy
+{
+    /** Called once before the first tick; {@code stocks[i]} is symbol i in onTick. */
+    void start(Stock[] stocks);
+
+    /**
+     * One tick, after the stock's price has been set and the account revalued.
+     * Trades go through account.buyStock / sellStock at that price, passing
+     * {@code epochNanos} so they are recorded at the tick's time.
+     */
+    void onTick(int symbol, Stock stock, long epochNanos, User account);
+}
@@ -0,0 +1,47 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide mapping from ticker to a dense int id, handed out in order of
+ * first use. Each Stock interns its symbol once when it is created, so hot
+ * paths can key positions and per-symbol arrays by id instead of hashing
+ * the ticker. Ids are never reused.
+ */
+final class SymbolRegistry
+{
+    private static final Map<String, Integer> ids = new HashMap<>();
+    private static volatile String[] symbols = new String[64];
+    private static int count;
+
+    private SymbolRegistry()
+    {
+    }
+
+    /** The id for {@code symbol}, assigning the next one if it is new. */
+    static synchronized int id(String symbol)
+    {
+        Integer id = ids.get(symbol);
+        if (id != null)
+            return id;
+        String[] table = symbols;
+        if (count == table.length)
+            table = Arrays.copyOf(table, count * 2);
+        table[count] = symbol;
+        symbols = table; // publish after the slot is written
+        ids.put(symbol, count);
+        return count++;
+    }
+
+    /** The ticker for an id returned by {@link #id}. */
+    static String symbol(int id)
+    {
+        return symbols[id];
+    }
+
+    /** Number of ids handed out so far; every id is below this. */
+    static synchronized int size()
+    {
+        return count;
+    }
+}
@@ -0,0 +1,227 @@
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Historical ticks in a compact binary file that is read memory-mapped.
+ *
+ * File layout: a 32-byte header (magic, version, record size, symbol count,
+ * tick count), then fixed 16-byte little-endian tick records in time order,
+ * then the symbol table:
+ *
+ *   0  long  epochNanos
+ *   8  int   symbol    index into the symbol table
+ *  12  int   price     paise
+ *
+ * The symbol table is MAX_SYMBOL_BYTES per symbol, UTF-8, zero padded, and is
+ * written last because the symbols are only known once every tick is in.
+ * Files larger than one mapping are mapped in CHUNK_RECORDS-record chunks.
+ */
+final class TickFile implements Closeable
+{
+    static final int MAGIC = 0x4B434954; // "TICK" little-endian
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 16;
+    static final int MAX_SYMBOL_BYTES = 16;
+    static final int CHUNK_RECORDS = 1 << 26; // 1 GiB per mapping
+
+    final String[] symbols;
+    final long ticks;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+
+    private TickFile(FileChannel channel, String[] symbols, long ticks, MappedByteBuffer[] chunks)
+    {
+        this.channel = channel;
+        this.symbols = symbols;
+        this.ticks = ticks;
+        this.chunks = chunks;
+    }
+
+    static TickFile open(Path file) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) > 0)
+            {
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC)
+                throw new IOException("Not a tick file: " + file);
+            short version = header.getShort();
+            if (version != VERSION || header.getShort() != RECORD_BYTES)
+                throw new IOException("Unsupported tick file version " + version + ": " + file);
+            int symbolCount = header.getInt();
+            header.getInt();
+            long ticks = header.getLong();
+
+            long tableStart = HEADER_BYTES + ticks * RECORD_BYTES;
+            ByteBuffer table = ByteBuffer.allocate(symbolCount * MAX_SYMBOL_BYTES);
+            while (table.hasRemaining() && channel.read(table, tableStart + table.position()) > 0)
+            {
+            }
+            if (table.hasRemaining())
+                throw new IOException("Truncated tick file: " + file);
+            String[] symbols = new String[symbolCount];
+            byte[] name = table.array();
+            for (int i = 0; i < symbolCount; i++)
+            {
+                int len = 0;
+                while (len < MAX_SYMBOL_BYTES && name[i * MAX_SYMBOL_BYTES + len] != 0)
+                    len++;
+                symbols[i] = new String(name, i * MAX_SYMBOL_BYTES, len, StandardCharsets.UTF_8);
+            }
+
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((ticks + CHUNK_RECORDS - 1) / CHUNK_RECORDS)];
+            for (int c = 0; c < chunks.length; c++)
+            {
+                long first = (long) c * CHUNK_RECORDS;
+                long records = Math.min(CHUNK_RECORDS, ticks - first);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * RECORD_BYTES, records * RECORD_BYTES);
+                chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new TickFile(channel, symbols, ticks, chunks);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    int chunkCount()
+    {
+        return chunks.length;
+    }
+
+    /** A private view of one chunk, so concurrent runs don't share buffer state. */
+    ByteBuffer chunk(int c)
+    {
+        return chunks[c].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close(); // the mappings stay valid until collected
+    }
+
+    /**
+     * Converts a CSV file of "epochMillis,symbol,price" lines, the format
+     * ReplayPriceSource reads, into a tick file. Malformed lines and prices of
+     * zero or less are skipped, as ReplayPriceSource skips them.
+     * Returns the number of ticks written.
+     */
+    static long convert(Path csv, Path out) throws IOException
+    {
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+             Writer writer = new Writer(out))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                String[] parts = line.split(",");
+                if (parts.length != 3)
+                    continue;
+                try
+                {
+                    long price = Money.parse(parts[2]);
+                    if (price > 0)
+                        writer.append(parts[1].trim(), price, TimeUnit.MILLISECONDS.toNanos(Long.parseLong(parts[0].trim())));
+                }
+                catch (NumberFormatException e)
+                {
+                    // skip malformed line
+                }
+            }
+            return writer.ticks;
+        }
+    }
+
+    /** Writes a tick file; ticks must be appended in time order. */
+    static final class Writer implements Closeable
+    {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_BYTES * 65536).order(ByteOrder.LITTLE_ENDIAN);
+        private final Map<String, Integer> symbolIds = new HashMap<>();
+        private final List<String> symbols = new ArrayList<>();
+        private long ticks;
+
+        Writer(Path file) throws IOException
+        {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            channel.position(HEADER_BYTES);
+        }
+
+        void append(String symbol, long price, long epochNanos) throws IOException
+        {
+            Integer id = symbolIds.get(symbol);
+            if (id == null)
+            {
+                if (symbol.getBytes(StandardCharsets.UTF_8).length > MAX_SYMBOL_BYTES)
+                    throw new IllegalArgumentException("Symbol longer than " + MAX_SYMBOL_BYTES + " bytes: " + symbol);
+                id = symbols.size();
+                symbolIds.put(symbol, id);
+                symbols.add(symbol);
+            }
+            if (!buffer.hasRemaining())
+                flush();
+            buffer.putLong(epochNanos).putInt(id).putInt(Math.toIntExact(price));
+            ticks++;
+        }
+
+        /** Ticks appended so far. */
+        long ticks()
+        {
+            return ticks;
+        }
+
+        private void flush() throws IOException
+        {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        /** Writes the symbol table and then the header, which makes the file readable. */
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                flush();
+                ByteBuffer table = ByteBuffer.allocate(symbols.size() * MAX_SYMBOL_BYTES);
+                for (int i = 0; i < symbols.size(); i++)
+                    table.position(i * MAX_SYMBOL_BYTES).put(symbols.get(i).getBytes(StandardCharsets.UTF_8));
+                table.clear();
+                while (table.hasRemaining())
+                    channel.write(table);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_BYTES)
+                        .putInt(symbols.size()).putInt(0).putLong(ticks).putLong(0).flip();
+                channel.write(header, 0);
+            }
+            finally
+            {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index over one account's trades, oldest first. For each trade it keeps
+ * where the trade is stored (a TradeLedger record number, or a position in
+ * transactionHistory for accounts without a ledger) and when it happened,
+ * plus the list of trades per symbol. A View for a symbol and time range is
+ * two binary searches over these arrays, so opening the history costs the
+ * same however long it is; the trades themselves are only read for the rows
+ * on screen.
+ */
+class TradeHistory
+{
+    /** Growable list of trade ordinals for one symbol. */
+    private static final class Ordinals
+    {
+        int[] items = new int[16];
+        int size;
+
+        void add(int ordinal)
+        {
+            if (size == items.length)
+                items = Arrays.copyOf(items, size * 2);
+            items[size++] = ordinal;
+        }
+    }
+
+    private long[] refs = new long[256];
+    private long[] times = new long[256];
+    private int size;
+    private final Map<String, Ordinals> bySymbol = new HashMap<>();
+
+    synchronized void add(long ref, String symbol, long epochNanos)
+    {
+        if (size == refs.length)
+        {
+            refs = Arrays.copyOf(refs, size * 2);
+            times = Arrays.copyOf(times, size * 2);
+        }
+        refs[size] = ref;
+        times[size] = epochNanos;
+        bySymbol.computeIfAbsent(symbol, k -> new Ordinals()).add(size);
+        size++;
+    }
+
+    synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * The trades in {@code symbol} (null for all) with fromNanos <= time < toNanos,
+     * as they stand now. Trades made later are not part of the view.
+     */
+    synchronized View view(String symbol, long fromNanos, long toNanos)
+    {
+        Ordinals ordinals = null;
+        int count = size;
+        if (symbol != null)
+        {
+            ordinals = bySymbol.get(symbol);
+            if (ordinals == null)
+                return new View(this, null, 0, 0);
+            count = ordinals.size;
+        }
+        return new View(this, ordinals, lowerBound(ordinals, count, fromNanos), lowerBound(ordinals, count, toNanos));
+    }
+
+    // First position in the (symbol's) list whose trade time is >= nanos; trades are appended in time order
+    private int lowerBound(Ordinals ordinals, int count, long nanos)
+    {
+        int lo = 0, hi = count;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            long t = times[ordinals == null ? mid : ordinals.items[mid]];
+            if (t < nanos)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private synchronized long ref(Ordinals ordinals, int position)
+    {
+        return refs[ordinals == null ? position : ordinals.items[position]];
+    }
+
+    /** A fixed window of trades, newest first. */
+    static final class View
+    {
+        private final TradeHistory history;
+        private final Ordinals ordinals;
+        private final int from, to;
+
+        private View(TradeHistory history, Ordinals ordinals, int from, int to)
+        {
+            this.history = history;
+            this.ordinals = ordinals;
+            this.from = from;
+            this.to = to;
+        }
+
+        int size()
+        {
+            return to - from;
+        }
+
+        /** Where the trade shown in {@code row} is stored. */
+        long ref(int row)
+        {
+            return history.ref(ordinals, to - 1 - row);
+        }
+    }
+}
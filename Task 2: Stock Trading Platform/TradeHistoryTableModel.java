@@ -0,0 +1,74 @@
+import javax.swing.table.AbstractTableModel;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Table over a TradeHistory.View. Rows are fetched and formatted only when
+ * the table asks for them, i.e. for the rows being painted.
+ */
+class TradeHistoryTableModel extends AbstractTableModel
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] COLUMNS = {"Time", "Side", "Symbol", "Quantity", "Price", "Value"};
+    private static final DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final User user;
+    private final TradeHistory.View view;
+    private int cachedRow = -1; // every column of a row comes from one read
+    private Transaction cached;
+
+    TradeHistoryTableModel(User user, TradeHistory.View view)
+    {
+        this.user = user;
+        this.view = view;
+    }
+
+    @Override
+    public int getRowCount()
+    {
+        return view.size();
+    }
+
+    @Override
+    public int getColumnCount()
+    {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column)
+    {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column)
+    {
+        if (row != cachedRow)
+        {
+            cached = user.historyRow(view.ref(row));
+            cachedRow = row;
+        }
+        Transaction t = cached;
+        if (t == null)
+            return column == 0 ? "(unavailable)" : "";
+        switch (column)
+        {
+            case 0:
+                return dtf.format(LocalDateTime.ofInstant(Instant.ofEpochSecond(0, t.epochNanos), ZoneId.systemDefault()));
+            case 1:
+                return t.side;
+            case 2:
+                return t.symbol;
+            case 3:
+                return t.quantity;
+            case 4:
+                return Money.format(t.price);
+            default:
+                return Money.format(Money.times(t.price, t.quantity));
+        }
+    }
+}
@@ -0,0 +1,413 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only binary ledger of one account's cash and trades.
+ *
+ * File layout: a 16-byte header (magic, version, record size) followed by
+ * fixed 32-byte little-endian records, so record i always starts at
+ * HEADER_BYTES + i * RECORD_BYTES:
+ *
+ *   0  byte  kind      SYMBOL, DEPOSIT, BUY or SELL
+ *   4  int   symbolId  index into this file's SYMBOL records
+ *   8  int   quantity  (SYMBOL: symbol bytes 8..23, UTF-8, zero padded)
+ *  16  long  ticks     price per share, or the amount of a DEPOSIT
+ *  24  long  epochNanos
+ *
+ * Appends go to an in-memory buffer; a shared daemon writes and fsyncs every
+ * open ledger each FLUSH_INTERVAL_MILLIS, so a burst of trades costs one
+ * fsync. A crash can lose at most that interval. A torn final record is cut
+ * off when the ledger is next opened. After a failed write or fsync the file
+ * may be missing records the account has already traded on, so the ledger
+ * refuses every later append with the same error.
+ *
+ * Because records are fixed-width, any trade can be read back by record
+ * number; readTrade serves them from a small cache of PAGE_RECORDS-record
+ * pages, which is what the history view pages through.
+ */
+class TradeLedger implements Closeable
+{
+    static final int MAGIC = 0x474C4454; // "TDLG" little-endian
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 32;
+    static final int MAX_SYMBOL_BYTES = 16;
+    static final byte SYMBOL = 0, DEPOSIT = 1, BUY = 2, SELL = 3;
+    static final long FLUSH_INTERVAL_MILLIS = 20;
+    static final String EXTENSION = ".ledger";
+    static final int PAGE_RECORDS = 512;
+    static final int CACHED_PAGES = 32;
+
+    private static final Set<TradeLedger> open = ConcurrentHashMap.newKeySet();
+    private static Thread flusher;
+
+    /** Receives the records of a ledger in order. */
+    interface Handler
+    {
+        void deposit(long ticks, long epochNanos);
+
+        /** @param record the trade's record number, for {@link #readTrade} */
+        void trade(Side side, String symbol, int quantity, long priceTicks, long epochNanos, long record);
+    }
+
+    final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer pending = ByteBuffer.allocate(RECORD_BYTES * 4096).order(ByteOrder.LITTLE_ENDIAN);
+    private final Map<String, Integer> symbolIds = new HashMap<>();
+    private final List<String> symbolNames;
+    private final Map<Long, ByteBuffer> pages = new LinkedHashMap<Long, ByteBuffer>(CACHED_PAGES, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ByteBuffer> eldest)
+        {
+            return size() > CACHED_PAGES;
+        }
+    };
+    private long records;
+    private boolean unsynced;
+    private volatile IOException failure;
+    final boolean created; // no usable header was found, so this open started an empty ledger
+
+    /**
+     * Opens (creating if needed) a ledger, replaying its existing records into
+     * {@code handler} first. Pass a null handler to skip the replay.
+     */
+    TradeLedger(Path file, Handler handler) throws IOException
+    {
+        this.file = file;
+        if (file.getParent() != null)
+            Files.createDirectories(file.getParent());
+        boolean exists = Files.exists(file) && Files.size(file) >= HEADER_BYTES;
+        created = !exists;
+        symbolNames = exists ? replay(file, handler) : new ArrayList<>();
+        for (int i = 0; i < symbolNames.size(); i++)
+            symbolIds.put(symbolNames.get(i), i);
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (!exists)
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_BYTES).flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        records = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+        channel.truncate(HEADER_BYTES + records * RECORD_BYTES); // drop a torn tail
+        channel.position(HEADER_BYTES + records * RECORD_BYTES);
+        register(this);
+    }
+
+    /** The ledger file for an account name. */
+    static Path fileFor(Path directory, String account)
+    {
+        return directory.resolve(safeFileName(account) + EXTENSION);
+    }
+
+    /** {@code name} percent-encoded down to letters, digits, '-' and '_', so it is safe on any filesystem. */
+    static String safeFileName(String name)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : name.getBytes(StandardCharsets.UTF_8))
+        {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_')
+                sb.append(c);
+            else
+                sb.append('%').append(String.format("%02X", b & 0xFF));
+        }
+        return sb.toString();
+    }
+
+    static long epochNanos()
+    {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    synchronized void appendDeposit(long ticks) throws IOException
+    {
+        put(DEPOSIT, 0, 0, ticks, epochNanos());
+    }
+
+    /** Appends a trade and returns its record number; nothing is appended if this throws. */
+    synchronized long appendTrade(Side side, String symbol, int quantity, long priceTicks, long epochNanos) throws IOException
+    {
+        put(side == Side.BUY ? BUY : SELL, symbolId(symbol), quantity, priceTicks, epochNanos);
+        return records - 1;
+    }
+
+    /** False once a write or fsync has failed; every later append throws. */
+    boolean healthy()
+    {
+        return failure == null;
+    }
+
+    private void checkHealthy() throws IOException
+    {
+        if (failure != null)
+            throw new IOException("Ledger unavailable after an earlier failure: " + file, failure);
+    }
+
+    private IOException fail(IOException e)
+    {
+        if (failure == null)
+            failure = e;
+        return e;
+    }
+
+    /**
+     * Reads back the trade at a record number, or returns null if that record
+     * is not a trade. Buffered records are written out first so they can be read.
+     */
+    synchronized Transaction readTrade(long record) throws IOException
+    {
+        if (record < 0 || record >= records)
+            throw new IndexOutOfBoundsException("record " + record + " of " + records);
+        long page = record / PAGE_RECORDS;
+        int offset = (int) (record % PAGE_RECORDS) * RECORD_BYTES;
+        ByteBuffer buf = pages.get(page);
+        if (buf == null || buf.limit() < offset + RECORD_BYTES) // not cached, or cached before this record was written
+        {
+            writePending();
+            buf = ByteBuffer.allocate(PAGE_RECORDS * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            long position = HEADER_BYTES + page * PAGE_RECORDS * RECORD_BYTES;
+            while (buf.hasRemaining() && channel.read(buf, position + buf.position()) > 0)
+            {
+            }
+            buf.flip();
+            pages.put(page, buf);
+        }
+        byte kind = buf.get(offset);
+        if (kind != BUY && kind != SELL)
+            return null;
+        return new Transaction(kind == BUY ? Side.BUY : Side.SELL, symbolNames.get(buf.getInt(offset + 4)),
+                buf.getInt(offset + 8), buf.getLong(offset + 16), buf.getLong(offset + 24));
+    }
+
+    /** Number of records, durable or not, including SYMBOL definitions. */
+    synchronized long records()
+    {
+        return records;
+    }
+
+    private int symbolId(String symbol) throws IOException
+    {
+        Integer id = symbolIds.get(symbol);
+        if (id != null)
+            return id;
+        byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_SYMBOL_BYTES)
+            throw new IllegalArgumentException("Symbol longer than " + MAX_SYMBOL_BYTES + " bytes: " + symbol);
+        ensureRoom();
+        int newId = symbolIds.size();
+        symbolIds.put(symbol, newId);
+        symbolNames.add(symbol);
+        int start = pending.position();
+        pending.put(SYMBOL).put(new byte[3]).putInt(newId).put(bytes).put(new byte[MAX_SYMBOL_BYTES - bytes.length]).putLong(0);
+        pending.position(start + RECORD_BYTES);
+        records++;
+        unsynced = true;
+        return newId;
+    }
+
+    private void put(byte kind, int symbolId, int quantity, long ticks, long epochNanos) throws IOException
+    {
+        ensureRoom();
+        pending.put(kind).put((byte) 0).putShort((short) 0).putInt(symbolId).putInt(quantity).putInt(0)
+                .putLong(ticks).putLong(epochNanos);
+        records++;
+        unsynced = true;
+    }
+
+    private void ensureRoom() throws IOException
+    {
+        checkHealthy();
+        if (pending.remaining() < RECORD_BYTES)
+            writePending();
+    }
+
+    private void writePending() throws IOException
+    {
+        pending.flip();
+        try
+        {
+            while (pending.hasRemaining())
+                channel.write(pending);
+        }
+        catch (IOException e)
+        {
+            throw fail(e);
+        }
+        pending.clear();
+    }
+
+    /** Writes buffered records and fsyncs them. */
+    void sync() throws IOException
+    {
+        synchronized (this)
+        {
+            if (!unsynced || !channel.isOpen())
+                return;
+            checkHealthy();
+            writePending();
+            unsynced = false;
+        }
+        try
+        {
+            channel.force(false); // outside the lock so appends aren't held up by the disk
+        }
+        catch (ClosedChannelException e)
+        {
+            // closed concurrently; close() forces on its own
+        }
+        catch (IOException e)
+        {
+            synchronized (this)
+            {
+                unsynced = true; // those records may not be on disk after all
+            }
+            throw fail(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        open.remove(this);
+        synchronized (this)
+        {
+            if (!channel.isOpen())
+                return;
+            try
+            {
+                checkHealthy();
+                writePending();
+                channel.force(false);
+            }
+            catch (IOException e)
+            {
+                throw fail(e);
+            }
+            finally
+            {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads every record of a ledger into {@code handler} (which may be null)
+     * and returns the symbol table. Records past the last complete one are
+     * ignored.
+     */
+    static List<String> replay(Path file, Handler handler) throws IOException
+    {
+        List<String> symbols = new ArrayList<>();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            ByteBuffer buf = ByteBuffer.allocateDirect(RECORD_BYTES * 32768).order(ByteOrder.LITTLE_ENDIAN);
+            buf.limit(HEADER_BYTES);
+            while (buf.hasRemaining() && in.read(buf) >= 0)
+            {
+            }
+            buf.flip();
+            if (buf.remaining() < HEADER_BYTES || buf.getInt() != MAGIC)
+                throw new IOException("Not a trade ledger: " + file);
+            short version = buf.getShort();
+            if (version != VERSION || buf.getShort() != RECORD_BYTES)
+                throw new IOException("Unsupported ledger version " + version + ": " + file);
+            buf.clear();
+
+            byte[] name = new byte[MAX_SYMBOL_BYTES];
+            long record = -1;
+            while (in.read(buf) >= 0 || buf.position() > 0)
+            {
+                buf.flip();
+                if (buf.remaining() < RECORD_BYTES)
+                    break; // torn tail
+                while (buf.remaining() >= RECORD_BYTES)
+                {
+                    int start = buf.position();
+                    record++;
+                    byte kind = buf.get(start);
+                    int symbolId = buf.getInt(start + 4);
+                    if (kind == SYMBOL)
+                    {
+                        buf.position(start + 8);
+                        buf.get(name);
+                        int len = 0;
+                        while (len < name.length && name[len] != 0)
+                            len++;
+                        symbols.add(new String(name, 0, len, StandardCharsets.UTF_8).intern());
+                    }
+                    else if (handler != null)
+                    {
+                        int quantity = buf.getInt(start + 8);
+                        long ticks = buf.getLong(start + 16);
+                        long nanos = buf.getLong(start + 24);
+                        if (kind == DEPOSIT)
+                            handler.deposit(ticks, nanos);
+                        else
+                            handler.trade(kind == BUY ? Side.BUY : Side.SELL, symbols.get(symbolId), quantity, ticks, nanos, record);
+                    }
+                    buf.position(start + RECORD_BYTES);
+                }
+                buf.compact();
+            }
+        }
+        return symbols;
+    }
+
+    private static synchronized void register(TradeLedger ledger)
+    {
+        open.add(ledger);
+        if (flusher != null)
+            return;
+        flusher = new Thread(() ->
+        {
+            while (true)
+            {
+                try
+                {
+                    Thread.sleep(FLUSH_INTERVAL_MILLIS);
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                for (TradeLedger l : open)
+                {
+                    if (!l.healthy())
+                        continue; // already reported, and refusing trades
+                    try
+                    {
+                        l.sync();
+                    }
+                    catch (IOException e)
+                    {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }, "ledger-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+}
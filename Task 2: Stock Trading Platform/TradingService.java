@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trading accounts keyed by name, sharing one set of order books.
+ *
+ * Each User is its own lock: every balance and position change is a
+ * synchronized User method, so a check-then-act such as "enough cash, then
+ * debit" is atomic per account and there is no global lock. Settling a fill
+ * updates the buyer and then the seller and never holds two account locks at
+ * once, so accounts cannot deadlock against each other; a book lock may be
+ * held while an account is locked, but never the other way round.
+ *
+ * Registered as a PriceListener, the service keeps every account's
+ * PortfolioValuation marked to the latest price.
+ *
+ * With a ledger directory, each account's trades are persisted in its own
+ * TradeLedger and an account is rebuilt from that ledger when it is opened.
+ */
+class TradingService implements PriceListener
+{
+    private final Map<String, Stock> stockMap;
+    private final ConcurrentHashMap<String, User> accounts = new ConcurrentHashMap<>();
+    private final Path ledgerDirectory; // null keeps accounts in memory only
+    final MatchingEngine engine;
+
+    TradingService(Map<String, Stock> stockMap)
+    {
+        this(stockMap, null);
+    }
+
+    TradingService(Map<String, Stock> stockMap, Path ledgerDirectory)
+    {
+        this.stockMap = stockMap;
+        this.ledgerDirectory = ledgerDirectory;
+        this.engine = new MatchingEngine(stockMap);
+    }
+
+    /**
+     * Returns the named account, creating it with the opening balance (in
+     * paise) if it doesn't exist yet. A persisted account is restored from its
+     * ledger and keeps its own balance.
+     *
+     * @throws UncheckedIOException if the account's ledger can't be read
+     */
+    User openAccount(String name, long openingBalance)
+    {
+        return accounts.computeIfAbsent(name, n ->
+        {
+            if (ledgerDirectory == null)
+                return new User(n, openingBalance);
+            try
+            {
+                return User.open(n, openingBalance, ledgerDirectory, stockMap);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    User account(String name)
+    {
+        return accounts.get(name);
+    }
+
+    Collection<User> accounts()
+    {
+        return accounts.values();
+    }
+
+    /** Buys from the house at the current feed price. */
+    boolean buy(String account, String symbol, int quantity)
+    {
+        User user = accounts.get(account);
+        Stock stock = stockMap.get(symbol);
+        return user != null && stock != null && quantity > 0 && user.buyStock(stock, quantity);
+    }
+
+    /** Sells to the house at the current feed price. */
+    boolean sell(String account, String symbol, int quantity)
+    {
+        User user = accounts.get(account);
+        Stock stock = stockMap.get(symbol);
+        return user != null && stock != null && quantity > 0 && user.sellStock(stock, quantity);
+    }
+
+    /** Places an order on the symbol's book; see {@link MatchingEngine#submit}. */
+    long placeOrder(String account, String symbol, Side side, OrderType type, int quantity, long limitTicks)
+    {
+        User user = accounts.get(account);
+        return user == null ? MatchingEngine.REJECTED : engine.submit(user, symbol, side, type, quantity, limitTicks);
+    }
+
+    /** Cancels a resting order; false unless it belongs to {@code account}. */
+    boolean cancelOrder(String account, String symbol, long orderId)
+    {
+        User user = accounts.get(account);
+        return user != null && engine.cancel(user, symbol, orderId);
+    }
+
+    /** Flushes and closes every account's ledger. */
+    void close()
+    {
+        engine.cancelAll(); // return reserved cash and shares before the ledgers close
+        for (User user : accounts.values())
+        {
+            if (user.ledger == null)
+                continue;
+            try
+            {
+                user.ledger.close();
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /** Revalues every account holding the stock. */
+    @Override
+    public void onPrice(Stock stock, long price, long timestampNanos)
+    {
+        for (User user : accounts.values())
+            user.onPrice(stock, price);
+    }
+}
@@ -0,0 +1,40 @@
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The Transaction class holds data for a single trade. It mirrors one
+ * TradeLedger record, so the time is kept as epoch nanoseconds and only
+ * turned into a date when displayed.
+ */
+class Transaction
+{
+    Side side;
+    String symbol;
+    int quantity;
+    long price; // paise
+    long epochNanos;
+    private static final DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    Transaction(Side side, String symbol, int quantity, long price, long epochNanos)
+    {
+        this.side = side;
+        this.symbol = symbol;
+        this.quantity = quantity;
+        this.price = price;
+        this.epochNanos = epochNanos;
+    }
+
+    LocalDateTime timestamp()
+    {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(0, epochNanos), ZoneId.systemDefault());
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("[%s] %-4s %d %s @ \u20B9%s",
+                dtf.format(timestamp()), side, quantity, symbol, Money.format(price));
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * A price alert, or a conditional order that trades {@code quantity} shares
+ * of {@code stock} through the user's buyStock / sellStock once the price
+ * reaches {@code level}. Alerts have no side.
+ */
+final class Trigger
+{
+    final long id;
+    final User user;
+    final Stock stock;
+    final Crossing crossing;
+    final long level; // paise
+    final Side side; // null for an alert
+    final int quantity;
+
+    Trigger(long id, User user, Stock stock, Crossing crossing, long level, Side side, int quantity)
+    {
+        this.id = id;
+        this.user = user;
+        this.stock = stock;
+        this.crossing = crossing;
+        this.level = level;
+        this.side = side;
+        this.quantity = quantity;
+    }
+
+    @Override
+    public String toString()
+    {
+        String what = side == null ? "Alert" : side == Side.SELL && crossing == Crossing.AT_OR_BELOW ? "Stop loss"
+                : side == Side.SELL ? "Take profit" : crossing == Crossing.AT_OR_ABOVE ? "Buy stop" : "Buy limit";
+        return what + " on " + stock.symbol + (crossing == Crossing.AT_OR_ABOVE ? " at or above \u20B9" : " at or below \u20B9")
+                + Money.format(level) + (side == null ? "" : " for " + quantity + " shares");
+    }
+}
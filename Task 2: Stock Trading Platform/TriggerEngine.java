@@ -0,0 +1,192 @@
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Notified of every trigger that fires, after its trade (if any) was tried.
+ * Called on the price feed thread.
+ */
+interface TriggerListener
+{
+    /** @param executed whether the trade went through; always false for alerts */
+    void onTriggered(Trigger trigger, long price, boolean executed);
+}
+
+/**
+ * Price alerts and stop-loss / take-profit orders, fired by price ticks.
+ *
+ * Each symbol keeps its triggers in two maps sorted by level, one per
+ * Crossing. A tick fires the AT_OR_ABOVE triggers from the lowest level up
+ * while the level is at or below the price, and the AT_OR_BELOW triggers
+ * from the highest level down while the level is at or above it, so a tick
+ * costs O(log n + fired) however many triggers are resting; the nearest
+ * level on each side is cached, so a tick that fires nothing costs two
+ * comparisons. A trigger fires once, on the first tick that reaches its
+ * level; if the price gaps through it, the trade happens at the new price.
+ */
+class TriggerEngine implements PriceListener
+{
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Map<Long, Trigger> byId = new HashMap<>(); // guarded by this
+    private volatile SymbolTriggers[] bySymbol = new SymbolTriggers[0]; // by SymbolRegistry id
+    private final List<TriggerListener> listeners = new CopyOnWriteArrayList<>();
+
+    void addListener(TriggerListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    long addAlert(User user, Stock stock, Crossing crossing, long level)
+    {
+        return add(user, stock, crossing, level, null, 0);
+    }
+
+    /** Sells {@code quantity} shares once the price falls to {@code level}. */
+    long addStopLoss(User user, Stock stock, int quantity, long level)
+    {
+        return add(user, stock, Crossing.AT_OR_BELOW, level, Side.SELL, quantity);
+    }
+
+    /** Sells {@code quantity} shares once the price rises to {@code level}. */
+    long addTakeProfit(User user, Stock stock, int quantity, long level)
+    {
+        return add(user, stock, Crossing.AT_OR_ABOVE, level, Side.SELL, quantity);
+    }
+
+    /** Adds a trigger and returns its id; it is checked from the next tick on. */
+    long add(User user, Stock stock, Crossing crossing, long level, Side side, int quantity)
+    {
+        if (side != null && quantity <= 0)
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        Trigger trigger = new Trigger(nextId.getAndIncrement(), user, stock, crossing, level, side, quantity);
+        synchronized (this)
+        {
+            byId.put(trigger.id, trigger);
+        }
+        triggers(stock).add(trigger);
+        return trigger.id;
+    }
+
+    /** Removes a trigger that hasn't fired; returns false if it has fired or doesn't exist. */
+    boolean cancel(long id)
+    {
+        Trigger trigger;
+        synchronized (this)
+        {
+            trigger = byId.remove(id);
+        }
+        return trigger != null && triggers(trigger.stock).remove(trigger);
+    }
+
+    /** Number of triggers waiting to fire. */
+    synchronized int size()
+    {
+        return byId.size();
+    }
+
+    @Override
+    public void onPrice(Stock stock, long price, long timestampNanos)
+    {
+        SymbolTriggers[] table = bySymbol;
+        if (stock.id >= table.length || table[stock.id] == null)
+            return;
+        List<Trigger> fired = table[stock.id].fire(price);
+        if (fired == null)
+            return;
+        synchronized (this)
+        {
+            for (Trigger t : fired)
+                byId.remove(t.id);
+        }
+        // Trade outside the trigger locks, which are never held while an account is locked
+        for (Trigger t : fired)
+        {
+            boolean executed;
+            try
+            {
+                executed = t.side == Side.BUY ? t.user.buyStock(t.stock, t.quantity)
+                        : t.side == Side.SELL && t.user.sellStock(t.stock, t.quantity);
+            }
+            catch (UncheckedIOException e)
+            {
+                executed = false; // the account's ledger failed, so the trade was refused
+            }
+            for (TriggerListener listener : listeners)
+                listener.onTriggered(t, price, executed);
+        }
+    }
+
+    private SymbolTriggers triggers(Stock stock)
+    {
+        SymbolTriggers[] table = bySymbol;
+        if (stock.id < table.length && table[stock.id] != null)
+            return table[stock.id];
+        synchronized (this)
+        {
+            table = bySymbol;
+            if (stock.id < table.length && table[stock.id] != null)
+                return table[stock.id];
+            table = Arrays.copyOf(table, Math.max(table.length, stock.id + 1));
+            table[stock.id] = new SymbolTriggers();
+            bySymbol = table;
+            return table[stock.id];
+        }
+    }
+
+    /** One symbol's triggers, by level. */
+    private static final class SymbolTriggers
+    {
+        private final TreeMap<Long, List<Trigger>> above = new TreeMap<>(); // AT_OR_ABOVE, fire lowest first
+        private final TreeMap<Long, List<Trigger>> below = new TreeMap<>(); // AT_OR_BELOW, fire highest first
+        private long lowestAbove = Long.MAX_VALUE, highestBelow = Long.MIN_VALUE;
+
+        synchronized void add(Trigger trigger)
+        {
+            boolean up = trigger.crossing == Crossing.AT_OR_ABOVE;
+            (up ? above : below).computeIfAbsent(trigger.level, k -> new ArrayList<>()).add(trigger);
+            if (up)
+                lowestAbove = Math.min(lowestAbove, trigger.level);
+            else
+                highestBelow = Math.max(highestBelow, trigger.level);
+        }
+
+        synchronized boolean remove(Trigger trigger)
+        {
+            boolean up = trigger.crossing == Crossing.AT_OR_ABOVE;
+            TreeMap<Long, List<Trigger>> side = up ? above : below;
+            List<Trigger> level = side.get(trigger.level);
+            if (level == null || !level.remove(trigger))
+                return false;
+            if (level.isEmpty())
+            {
+                side.remove(trigger.level);
+                if (up)
+                    lowestAbove = above.isEmpty() ? Long.MAX_VALUE : above.firstKey();
+                else
+                    highestBelow = below.isEmpty() ? Long.MIN_VALUE : below.lastKey();
+            }
+            return true;
+        }
+
+        /** Takes out every trigger the price reaches, in level order; null if none. */
+        synchronized List<Trigger> fire(long price)
+        {
+            if (price < lowestAbove && price > highestBelow)
+                return null;
+            List<Trigger> fired = new ArrayList<>();
+            while (!above.isEmpty() && above.firstKey() <= price)
+                fired.addAll(above.pollFirstEntry().getValue());
+            while (!below.isEmpty() && below.lastKey() >= price)
+                fired.addAll(below.pollLastEntry().getValue());
+            lowestAbove = above.isEmpty() ? Long.MAX_VALUE : above.firstKey();
+            highestBelow = below.isEmpty() ? Long.MIN_VALUE : below.lastKey();
+            return fired;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * A trading account. All reads and writes of balance, portfolio and
+ * transactionHistory hold the User's monitor, so one account can be traded
+ * from several threads at once.
+ */
+class User
+{
+    String name;
+    long balance; // paise
+    final PositionTable portfolio = new PositionTable(); // shares not reserved for sell orders
+    ArrayList<Transaction> transactionHistory; // only for accounts without a ledger
+    final TradeHistory history = new TradeHistory();
+    final PortfolioValuation valuation = new PortfolioValuation();
+    long cashOnOrder; // paise reserved for resting limit buys
+    TradeLedger ledger; // null for accounts that are not persisted
+    private String portfolioText; // rendered lazily; null when anything changed
+
+    User(String name, long balance)
+    {
+        this.name = name;
+        this.balance = balance;
+        this.transactionHistory = new ArrayList<>();
+    }
+
+    /**
+     * Opens an account backed by a TradeLedger in {@code ledgerDirectory}. An
+     * existing ledger is replayed to rebuild balance, portfolio, valuation and
+     * the history index; otherwise a new one is started with the opening
+     * balance. The trades themselves stay on disk.
+     */
+    static User open(String name, long openingBalance, Path ledgerDirectory, Map<String, Stock> stockMap) throws IOException
+    {
+        User user = new User(name, 0);
+        Path file = TradeLedger.fileFor(ledgerDirectory, name);
+        user.ledger = new TradeLedger(file, new TradeLedger.Handler()
+        {
+            @Override
+            public void deposit(long ticks, long epochNanos)
+            {
+                user.balance += ticks;
+            }
+
+            @Override
+            public void trade(Side side, String symbol, int quantity, long price, long epochNanos, long record)
+            {
+                Stock stock = stockMap.get(symbol);
+                if (stock == null)
+                    stock = new Stock(symbol, symbol, price); // no longer listed
+                user.apply(side, stock, quantity, price);
+                user.history.add(record, symbol, epochNanos);
+            }
+        });
+        // Decided by the ledger itself, so a file too short to hold a header still gets its opening deposit
+        if (user.ledger.created)
+        {
+            user.balance = openingBalance;
+            user.ledger.appendDeposit(openingBalance);
+        }
+        return user;
+    }
+
+    // Books an executed trade against cash and holdings
+    private void apply(Side side, Stock stock, int quantity, long price)
+    {
+        if (side == Side.BUY)
+        {
+            balance -= Money.times(price, quantity);
+            portfolio.add(stock.id, quantity);
+            valuation.bought(stock, quantity, price);
+        }
+        else
+        {
+            balance += Money.times(price, quantity);
+            portfolio.add(stock.id, -quantity);
+            valuation.sold(stock, quantity, price);
+        }
+        portfolioText = null;
+    }
+
+    /**
+     * Records a trade before it is settled, so a ledger that can't take it
+     * leaves cash and holdings untouched. With a ledger the trade is only
+     * written there and the history refers to its record; otherwise it is
+     * kept in transactionHistory.
+     *
+     * @throws UncheckedIOException if the ledger has failed; the trade must not go ahead
+     */
+    private void record(Side side, Stock stock, int quantity, long price, long epochNanos)
+    {
+        if (ledger != null)
+        {
+            long ref;
+            try
+            {
+                ref = ledger.appendTrade(side, stock.symbol, quantity, price, epochNanos);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            history.add(ref, stock.symbol, epochNanos);
+            return;
+        }
+        transactionHistory.add(new Transaction(side, stock.symbol, quantity, price, epochNanos));
+        history.add(transactionHistory.size() - 1, stock.symbol, epochNanos);
+    }
+
+    /** False once the account's ledger has failed; it takes no more trades. */
+    boolean canTrade()
+    {
+        return ledger == null || ledger.healthy();
+    }
+
+    /** The trade stored at a TradeHistory ref, or null if it can't be read. */
+    synchronized Transaction historyRow(long ref)
+    {
+        if (ledger == null)
+            return ref < transactionHistory.size() ? transactionHistory.get((int) ref) : null;
+        try
+        {
+            return ledger.readTrade(ref);
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public synchronized boolean buyStock(Stock stock, int quantity)
+    {
+        return buyStock(stock, quantity, TradeLedger.epochNanos()); // stamped under the lock, so times stay in order
+    }
+
+    public synchronized boolean sellStock(Stock stock, int quantity)
+    {
+        return sellStock(stock, quantity, TradeLedger.epochNanos());
+    }
+
+    /**
+     * Buys at the stock's current price and records the trade as made at
+     * {@code epochNanos}, e.g. the time of the tick a backtest is replaying.
+     * Times must not go backwards for one account.
+     *
+     * @throws UncheckedIOException if the trade can't be written to the ledger
+     */
+    synchronized boolean buyStock(Stock stock, int quantity, long epochNanos)
+    {
+        long price = stock.price; // read once: the feed may move it mid-trade
+        if (Money.times(price, quantity) > balance)
+            return false;
+        record(Side.BUY, stock, quantity, price, epochNanos);
+        apply(Side.BUY, stock, quantity, price);
+        return true;
+    }
+
+    /** Sells at the stock's current price; see {@link #buyStock(Stock, int, long)}. */
+    synchronized boolean sellStock(Stock stock, int quantity, long epochNanos)
+    {
+        if (quantity > portfolio.get(stock.id))
+            return false;
+        long price = stock.price;
+        record(Side.SELL, stock, quantity, price, epochNanos);
+        apply(Side.SELL, stock, quantity, price);
+        return true;
+    }
+
+    // --- Order book settlement ---
+
+    synchronized long affordableShares(long price)
+    {
+        return balance / price;
+    }
+
+    synchronized boolean reserveCash(long amount)
+    {
+        if (amount > balance)
+            return false;
+        balance -= amount;
+        cashOnOrder += amount;
+        portfolioText = null;
+        return true;
+    }
+
+    synchronized void releaseCash(long amount)
+    {
+        balance += amount;
+        cashOnOrder -= amount;
+        portfolioText = null;
+    }
+
+    synchronized boolean reserveShares(Stock stock, int quantity)
+    {
+        if (quantity > portfolio.get(stock.id))
+            return false;
+        portfolio.add(stock.id, -quantity);
+        portfolioText = null;
+        return true;
+    }
+
+    synchronized void releaseShares(Stock stock, int quantity)
+    {
+        portfolio.add(stock.id, quantity);
+        portfolioText = null;
+    }
+
+    /** Credits bought shares; cash was reserved at reservedPrice a share, so refund any price improvement. */
+    synchronized void settleBuy(Stock stock, int quantity, long price, long reservedPrice)
+    {
+        record(Side.BUY, stock, quantity, price, TradeLedger.epochNanos());
+        portfolio.add(stock.id, quantity);
+        cashOnOrder -= Money.times(price, quantity);
+        if (reservedPrice > price)
+            releaseCash(Money.times(reservedPrice - price, quantity));
+        valuation.bought(stock, quantity, price);
+        portfolioText = null;
+    }
+
+    /** Credits the proceeds of sold shares, which were reserved when the order was placed. */
+    synchronized void settleSell(Stock stock, int quantity, long price)
+    {
+        record(Side.SELL, stock, quantity, price, TradeLedger.epochNanos());
+        balance += Money.times(price, quantity);
+        valuation.sold(stock, quantity, price);
+        portfolioText = null;
+    }
+
+    /** Revalues the position in {@code stock}, if any, after a price tick. */
+    synchronized void onPrice(Stock stock, long price)
+    {
+        if (valuation.mark(stock, price))
+            portfolioText = null;
+    }
+
+    /**
+     * Portfolio summary from the running valuation. The text is only rebuilt
+     * when a fill or tick has changed something since it was last rendered.
+     */
+    public synchronized String getPortfolioString()
+    {
+        if (portfolioText != null)
+            return portfolioText;
+        StringBuilder sb = new StringBuilder();
+        sb.append("Portfolio of ").append(name).append(":\n\n");
+        for (PortfolioValuation.Position p : valuation.positions())
+        {
+            sb.append(p.stock.symbol).append(": ").append(p.quantity).append(" shares @ \u20B9").append(Money.format(p.markPrice))
+                    .append(" = \u20B9").append(Money.format(p.marketValue()))
+                    .append(" (P&L \u20B9").append(Money.formatSigned(p.unrealizedPnl())).append(")");
+            int onOrder = p.quantity - portfolio.get(p.stock.id);
+            if (onOrder > 0)
+                sb.append(", ").append(onOrder).append(" on order");
+            sb.append("\n");
+        }
+        sb.append("\nCash Balance: \u20B9").append(Money.format(balance));
+        if (cashOnOrder > 0)
+            sb.append("\nCash on Order: \u20B9").append(Money.format(cashOnOrder));
+        sb.append("\nTotal Portfolio Value: \u20B9").append(Money.format(balance + cashOnOrder + valuation.marketValue()));
+        sb.append("\nUnrealized P&L: \u20B9").append(Money.formatSigned(valuation.unrealizedPnl()));
+        sb.append("\nRealized P&L: \u20B9").append(Money.formatSigned(valuation.realizedPnl()));
+        portfolioText = sb.toString();
+        return portfolioText;
+    }
+}
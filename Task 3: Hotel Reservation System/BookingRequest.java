@@ -0,0 +1,16 @@
+import java.time.LocalDate;
+
+/** One room in a group booking passed to {@link Hotel#makeReservations}. */
+class BookingRequest {
+    String name;
+    int roomNumber;
+    LocalDate checkIn;
+    LocalDate checkOut;
+
+    BookingRequest(String name, int roomNumber, LocalDate checkIn, LocalDate checkOut) {
+        this.name = name;
+        this.roomNumber = roomNumber;
+        this.checkIn = checkIn;
+        this.checkOut = checkOut;
+    }
+}
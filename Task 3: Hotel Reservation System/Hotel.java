@@ -0,0 +1,574 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+class Hotel {
+    List<Room> rooms = new ArrayList<>();
+    final String FILE_NAME = "reservations.dat";
+    final String LEGACY_FILE_NAME = "reservations.txt";
+    final String JOURNAL_FILE_NAME = "reservations.journal";
+    static final String SEQ_HEADER = "#seq=";
+    static final int COMPACT_THRESHOLD = 1000;
+    static final long COMPACT_INTERVAL_SECONDS = 30;
+    static final int LOCK_STRIPES = 64; // power of two so a room maps to its stripe with a mask
+    static final int HORIZON_DAYS = 365;
+
+    // Nights are tracked as offsets from baseDay, which rolls forward to today once the date
+    // changes. Both fields are only replaced while every stripe is held.
+    volatile LocalDate baseDay = today();
+
+    // Dense index keyed by room number. Rooms are only added during construction;
+    // after that each room's bookings and calendar are guarded by its stripe lock.
+    private Room[] roomIndex = new Room[0];
+    private volatile AvailabilityIndex availability;
+    // Rooms with no stay booked at all, per category: free for any dates, found in O(1)
+    private final Map<String, FreeRoomSet> unbookedRooms = new HashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+
+    ReservationJournal journal;
+    private long lastSeq;
+    private final Object compactLock = new Object(); // one compaction at a time
+    private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "reservation-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    Hotel() {
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new ReentrantLock();
+        initRooms();
+        availability = new AvailabilityIndex(rooms, baseDay);
+        try {
+            loadReservationsFromFile(); // a snapshot or journal that can't be read stops startup rather than losing its stays
+            journal = new ReservationJournal(JOURNAL_FILE_NAME, lastSeq);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        compactor.scheduleWithFixedDelay(() -> {
+            rollHorizon();
+            if (journal.recordsSinceRotate() >= COMPACT_THRESHOLD) compact();
+        }, COMPACT_INTERVAL_SECONDS, COMPACT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    void initRooms() {
+        addRooms(101, 110, "Standard");
+        addRooms(201, 205, "Deluxe");
+        addRooms(301, 303, "Suite");
+    }
+
+    void addRooms(int start, int end, String category) {
+        if (end >= roomIndex.length) roomIndex = Arrays.copyOf(roomIndex, Math.max(end + 1, roomIndex.length * 2));
+        FreeRoomSet unbooked = unbookedRooms.computeIfAbsent(category, c -> new FreeRoomSet());
+        for (int i = start; i <= end; i++) {
+            Room room = new Room(i, category, rooms.size());
+            rooms.add(room);
+            roomIndex[i] = room;
+            unbooked.add(i);
+        }
+    }
+
+    /** Rebuilds state from the last snapshot plus the journal tail written after it. */
+    void loadReservationsFromFile() throws IOException {
+        File file = new File(FILE_NAME);
+        File legacy = new File(LEGACY_FILE_NAME);
+        long snapshotSeq = 0;
+        if (!file.exists() && legacy.exists()) {
+            ReservationStore.convertTextSnapshot(legacy, file, baseDay, baseDay.plusDays(HORIZON_DAYS));
+            Files.move(legacy.toPath(), new File(LEGACY_FILE_NAME + ".migrated").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (file.exists()) snapshotSeq = ReservationStore.load(file, this::applyBooking);
+        ReservationJournal.RecordHandler handler = this::applyRecord;
+        lastSeq = ReservationJournal.replay(new File(JOURNAL_FILE_NAME + ".1"), snapshotSeq, handler);
+        lastSeq = ReservationJournal.replay(new File(JOURNAL_FILE_NAME + ".rotating"), lastSeq, handler);
+        lastSeq = ReservationJournal.replay(new File(JOURNAL_FILE_NAME), lastSeq, handler);
+    }
+
+    private void applyRecord(String type, String payload) {
+        if (ReservationJournal.BOOK.equals(type)) {
+            applyBooking(Reservation.fromRecord(payload));
+        } else {
+            String[] parts = payload.split(",");
+            applyCancel(Integer.parseInt(parts[0]), parts.length > 1 ? LocalDate.parse(parts[1]) : null);
+        }
+    }
+
+    LocalDate today() {
+        return LocalDate.now();
+    }
+
+    private int dayOffset(LocalDate date) {
+        return (int) ChronoUnit.DAYS.between(baseDay, date);
+    }
+
+    /**
+     * Moves the horizon to start today once the date has changed, so a
+     * long-running process keeps offering HORIZON_DAYS ahead. Stays that have
+     * ended are dropped, which hands their rooms back to the unbooked set and
+     * keeps them out of the next snapshot. Every calendar is rebuilt under all
+     * stripes; lock-free lookups keep using the old index until the new one is
+     * published.
+     */
+    void rollHorizon() {
+        LocalDate today = today();
+        if (!today.isAfter(baseDay)) return;
+        lockAllStripes();
+        try {
+            if (!today.isAfter(baseDay)) return;
+            AvailabilityIndex index = new AvailabilityIndex(rooms, today);
+            for (Room room : rooms) {
+                Arrays.fill(room.calendar, 0);
+                if (room.bookings.removeIf(res -> !res.checkOut.isAfter(today)) && room.bookings.isEmpty()) {
+                    unbookedRooms.get(room.category).add(room.roomNumber);
+                }
+                for (Reservation res : room.bookings) markStay(room, index, res, true);
+            }
+            baseDay = today;
+            availability = index;
+        } finally {
+            unlockAllStripes();
+        }
+    }
+
+    // Stays that started before the base day or run past the horizon are clipped for the calendar only
+    private static void markStay(Room room, AvailabilityIndex index, Reservation res, boolean booked) {
+        int from = Math.max(index.offset(res.checkIn), 0);
+        int to = Math.min(index.offset(res.checkOut), HORIZON_DAYS);
+        if (from < to) {
+            room.mark(from, to, booked);
+            index.mark(room, from, to, booked);
+        }
+    }
+
+    // Callers hold the stripe lock for the room (or run single-threaded during load)
+    private void applyBooking(Reservation res) {
+        Room room = getRoomByNumber(res.roomNumber).orElse(null);
+        if (room == null) return;
+        if (res.checkIn == null) {
+            // Undated bookings from the old format held the room indefinitely
+            res.checkIn = baseDay;
+            res.checkOut = baseDay.plusDays(HORIZON_DAYS);
+        }
+        if (!res.checkOut.isAfter(baseDay)) return; // ended before today, e.g. replayed from an older snapshot
+        int i = 0;
+        while (i < room.bookings.size() && room.bookings.get(i).checkIn.isBefore(res.checkIn)) i++;
+        room.bookings.add(i, res);
+        if (room.bookings.size() == 1) unbookedRooms.get(room.category).remove(room.roomNumber);
+        markStay(room, availability, res, true);
+    }
+
+    /** Cancels the stay starting on {@code checkIn}, or every stay for the room when it is null; returns what it removed. */
+    private List<Reservation> applyCancel(int roomNumber, LocalDate checkIn) {
+        List<Reservation> removed = new ArrayList<>();
+        Room room = getRoomByNumber(roomNumber).orElse(null);
+        if (room == null) return removed;
+        room.bookings.removeIf(res -> {
+            if (checkIn != null && !res.checkIn.equals(checkIn)) return false;
+            removed.add(res);
+            markStay(room, availability, res, false);
+            return true;
+        });
+        if (!removed.isEmpty() && room.bookings.isEmpty()) unbookedRooms.get(room.category).add(roomNumber);
+        return removed;
+    }
+
+    /** Takes back bookings whose journal commit failed, so memory doesn't claim what the disk may not hold. */
+    private void undoBookings(List<Reservation> booked) {
+        for (Reservation res : booked) {
+            ReentrantLock lock = stripeFor(res.roomNumber);
+            lock.lock();
+            try {
+                applyCancel(res.roomNumber, res.checkIn);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Puts back stays whose cancellation failed to commit, unless their nights have been rebooked since. */
+    private void restoreBookings(Room room, List<Reservation> cancelled) {
+        ReentrantLock lock = stripeFor(room.roomNumber);
+        lock.lock();
+        try {
+            for (Reservation res : cancelled) {
+                int from = Math.max(dayOffset(res.checkIn), 0);
+                int to = Math.min(dayOffset(res.checkOut), HORIZON_DAYS);
+                if (from >= to || room.isFree(from, to)) applyBooking(res);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripeFor(int roomNumber) {
+        return stripes[roomNumber & (LOCK_STRIPES - 1)];
+    }
+
+    private void lockAllStripes() {
+        for (ReentrantLock lock : stripes) lock.lock(); // always in index order, so never deadlocks
+    }
+
+    private void unlockAllStripes() {
+        for (int i = stripes.length - 1; i >= 0; i--) stripes[i].unlock();
+    }
+
+    /** Returns a consistent copy of all current reservations. */
+    List<Reservation> getReservations() {
+        lockAllStripes();
+        try {
+            return collectReservations();
+        } finally {
+            unlockAllStripes();
+        }
+    }
+
+    private List<Reservation> collectReservations() {
+        List<Reservation> result = new ArrayList<>();
+        for (Room room : rooms) result.addAll(room.bookings);
+        return result;
+    }
+
+    /** Writes a snapshot atomically: a crash leaves either the old or the new file, never a torn one. */
+    void saveReservationsToFile(List<Reservation> snapshot, long seq) throws IOException {
+        ReservationStore.write(new File(FILE_NAME), snapshot, seq);
+    }
+
+    /**
+     * Folds the journal into a fresh snapshot. Bookings are locked out only
+     * while the reservations are copied and the journal is renamed aside;
+     * the fsyncs and the snapshot write happen after they are released.
+     */
+    void compact() {
+        synchronized (compactLock) {
+            compactLocked();
+        }
+    }
+
+    private void compactLocked() {
+        try {
+            List<Reservation> snapshot;
+            long seq;
+            lockAllStripes();
+            try {
+                snapshot = collectReservations();
+                seq = journal.beginRotate();
+            } finally {
+                unlockAllStripes();
+            }
+            journal.finishRotate();
+            saveReservationsToFile(snapshot, seq);
+            journal.discardRotated();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    void shutdown() {
+        compactor.shutdown();
+        journal.close();
+    }
+
+    Optional<Room> getRoomByNumber(int roomNumber) {
+        if (roomNumber < 0 || roomNumber >= roomIndex.length) return Optional.empty();
+        return Optional.ofNullable(roomIndex[roomNumber]);
+    }
+
+    /** Returns the room's stay in progress, or failing that its earliest upcoming one. */
+    Optional<Reservation> getReservationByRoomNumber(int roomNumber) {
+        Optional<Room> room = getRoomByNumber(roomNumber);
+        if (room.isEmpty()) return Optional.empty();
+        LocalDate today = today();
+        ReentrantLock lock = stripeFor(roomNumber);
+        lock.lock();
+        try {
+            // Stays never overlap, so sorted by check-in they are sorted by check-out too
+            return room.get().bookings.stream().filter(res -> res.checkOut.isAfter(today)).findFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Returns every room of the category that is free for all nights in [from, to). */
+    List<Room> findFreeRooms(String category, LocalDate from, LocalDate to) {
+        List<Room> result = new ArrayList<>();
+        AvailabilityIndex index = availability;
+        if (!isWithinHorizon(index, from, to)) return result;
+        BitSet free = index.freeSlots(category, index.offset(from), index.offset(to));
+        for (int slot = free.nextSetBit(0); slot >= 0; slot = free.nextSetBit(slot + 1)) result.add(rooms.get(slot));
+        return result;
+    }
+
+    /** Returns any room of the category with no stay booked on it, in O(1). */
+    Optional<Room> findFreeRoom(String category) {
+        FreeRoomSet unbooked = unbookedRooms.get(category);
+        int roomNumber = unbooked == null ? -1 : unbooked.any();
+        return roomNumber < 0 ? Optional.empty() : getRoomByNumber(roomNumber);
+    }
+
+    /**
+     * Returns a room of the category free for every night in [from, to). A room
+     * with nothing booked is taken in O(1); only when every room has some stay
+     * does this fall back to the per-night search.
+     */
+    Optional<Room> findFreeRoom(String category, LocalDate from, LocalDate to) {
+        AvailabilityIndex index = availability;
+        if (!isWithinHorizon(index, from, to)) return Optional.empty();
+        Optional<Room> unbooked = findFreeRoom(category);
+        if (unbooked.isPresent()) return unbooked;
+        int slot = index.firstFreeSlot(category, index.offset(from), index.offset(to));
+        return slot < 0 ? Optional.empty() : Optional.of(rooms.get(slot));
+    }
+
+    /** Whether a stay from {@code from} to {@code to} can be booked at all, as of today. */
+    boolean isWithinHorizon(LocalDate from, LocalDate to) {
+        rollHorizon();
+        return isWithinHorizon(availability, from, to);
+    }
+
+    private static boolean isWithinHorizon(AvailabilityIndex index, LocalDate from, LocalDate to) {
+        return from.isBefore(to) && !from.isBefore(index.baseDay) && index.offset(to) <= HORIZON_DAYS;
+    }
+
+    private static String horizonError() {
+        return "Error: Stay must be at least one night within the next " + HORIZON_DAYS + " days.";
+    }
+
+    /** Journal records end at a newline, so a guest name may not hold line breaks or other control characters. */
+    static boolean isValidName(String name) {
+        return name.chars().noneMatch(Character::isISOControl);
+    }
+
+    private static String nameError() {
+        return "Error: Guest name cannot contain line breaks or control characters.";
+    }
+
+    /** Books the room for tonight only: check-in today, check-out tomorrow. */
+    String makeReservation(String name, int roomNumber) {
+        LocalDate today = today();
+        return makeReservation(name, roomNumber, today, today.plusDays(1));
+    }
+
+    String makeReservation(String name, int roomNumber, LocalDate checkIn, LocalDate checkOut) {
+        if (!isValidName(name)) return nameError();
+        Optional<Room> found = getRoomByNumber(roomNumber);
+        if (found.isEmpty()) return "Error: Room not found.";
+        rollHorizon();
+        Room room = found.get();
+        Reservation res;
+        long seq;
+        ReentrantLock lock = stripeFor(roomNumber);
+        lock.lock();
+        try {
+            // Checked under the lock: the horizon only moves while every stripe is held
+            if (!isWithinHorizon(availability, checkIn, checkOut)) return horizonError();
+            if (!room.isFree(dayOffset(checkIn), dayOffset(checkOut)))
+                return "Error: Room " + roomNumber + " is already booked for those dates!";
+            res = new Reservation(name, room.roomNumber, room.category, PaymentStatus.PAID, checkIn, checkOut);
+            seq = journal.appendBook(res);
+            applyBooking(res);
+        } catch (IOException e) {
+            return saveError("booking", e);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            journal.commit(seq);
+        } catch (IOException e) {
+            undoBookings(List.of(res));
+            return saveError("booking", e);
+        }
+        return "Booking successful! Room " + res.roomNumber + " reserved for " + name
+                + " from " + checkIn + " to " + checkOut + ".";
+    }
+
+    /**
+     * Books every request or none of them. All involved stripes are locked up
+     * front in index order, and the batch is journaled and fsynced once.
+     */
+    String makeReservations(List<BookingRequest> requests) {
+        if (requests.isEmpty()) return "Error: No rooms requested.";
+        Room[] targets = new Room[requests.size()];
+        TreeSet<Integer> stripeIds = new TreeSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            BookingRequest req = requests.get(i);
+            if (!isValidName(req.name)) return nameError();
+            Optional<Room> found = getRoomByNumber(req.roomNumber);
+            if (found.isEmpty()) return "Error: Room " + req.roomNumber + " not found.";
+            targets[i] = found.get();
+            stripeIds.add(req.roomNumber & (LOCK_STRIPES - 1));
+        }
+
+        rollHorizon();
+        List<Reservation> batch = new ArrayList<>(requests.size());
+        long seq;
+        for (int id : stripeIds) stripes[id].lock();
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                BookingRequest req = requests.get(i);
+                if (!isWithinHorizon(availability, req.checkIn, req.checkOut)) return horizonError();
+                int from = dayOffset(req.checkIn);
+                int to = dayOffset(req.checkOut);
+                if (!targets[i].isFree(from, to))
+                    return "Error: Room " + req.roomNumber + " is already booked for those dates! No rooms were booked.";
+                for (int j = 0; j < i; j++) {
+                    BookingRequest other = requests.get(j);
+                    if (other.roomNumber == req.roomNumber && other.checkIn.isBefore(req.checkOut) && req.checkIn.isBefore(other.checkOut))
+                        return "Error: Room " + req.roomNumber + " is requested twice for overlapping dates.";
+                }
+                batch.add(new Reservation(req.name, req.roomNumber, targets[i].category, PaymentStatus.PAID, req.checkIn, req.checkOut));
+            }
+            seq = journal.appendBooks(batch);
+            for (Reservation res : batch) applyBooking(res);
+        } catch (IOException e) {
+            return saveError("booking", e);
+        } finally {
+            for (int id : stripeIds.descendingSet()) stripes[id].unlock();
+        }
+        try {
+            journal.commit(seq);
+        } catch (IOException e) {
+            undoBookings(batch);
+            return saveError("booking", e);
+        }
+        return "Booking successful! " + batch.size() + " rooms reserved.";
+    }
+
+    private static String saveError(String what, IOException e) {
+        return "Error: The " + what + " could not be saved (" + e.getMessage() + ").";
+    }
+
+    /** Cancels every reservation held on the room. */
+    String cancelReservation(int roomNumber) {
+        return cancelReservation(roomNumber, null);
+    }
+
+    String cancelReservation(int roomNumber, LocalDate checkIn) {
+        Optional<Room> found = getRoomByNumber(roomNumber);
+        if (found.isEmpty()) return "Error: No reservation found for Room " + roomNumber + ".";
+        long seq;
+        List<Reservation> cancelled;
+        ReentrantLock lock = stripeFor(roomNumber);
+        lock.lock();
+        try {
+            if (found.get().bookings.stream().noneMatch(res -> checkIn == null || res.checkIn.equals(checkIn)))
+                return "Error: No reservation found for Room " + roomNumber + ".";
+            seq = journal.appendCancel(roomNumber, checkIn);
+            cancelled = applyCancel(roomNumber, checkIn);
+        } catch (IOException e) {
+            return saveError("cancellation", e);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            journal.commit(seq);
+        } catch (IOException e) {
+            restoreBookings(found.get(), cancelled);
+            return saveError("cancellation", e);
+        }
+        return "Reservation for Room " + roomNumber + " has been cancelled.";
+    }
+}
+
+// --- Indexes ---
+
+/**
+ * Set of room numbers with O(1) add, remove and pick-any, keyed by the primitive
+ * room number. Rooms on different lock stripes share a category's set, so it
+ * is guarded by its own monitor.
+ */
+class FreeRoomSet {
+    private int[] members = new int[8];
+    private int size;
+    private int[] slotByRoom = new int[0]; // 1-based position in members, 0 when absent
+
+    synchronized void add(int roomNumber) {
+        if (roomNumber >= slotByRoom.length) slotByRoom = Arrays.copyOf(slotByRoom, Math.max(roomNumber + 1, slotByRoom.length * 2));
+        if (slotByRoom[roomNumber] != 0) return;
+        if (size == members.length) members = Arrays.copyOf(members, size * 2);
+        members[size++] = roomNumber;
+        slotByRoom[roomNumber] = size;
+    }
+
+    synchronized void remove(int roomNumber) {
+        if (roomNumber >= slotByRoom.length || slotByRoom[roomNumber] == 0) return;
+        int pos = slotByRoom[roomNumber] - 1;
+        int last = members[--size];
+        members[pos] = last;
+        slotByRoom[last] = pos + 1;
+        slotByRoom[roomNumber] = 0;
+    }
+
+    /** Returns any room number in the set, or -1 when it is empty. */
+    synchronized int any() {
+        return size == 0 ? -1 : members[size - 1];
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
+
+/**
+ * Per-night occupancy bitsets over every room, used to answer "which rooms of a
+ * category are free for [from, to)" a 64-room word at a time. Bits are flipped
+ * with CAS so bookings on different rooms never block each other here.
+ */
+class AvailabilityIndex {
+    final LocalDate baseDay; // night 0
+    private final int words;
+    private final AtomicLongArray occupied;
+    private final Map<String, long[]> categoryMasks = new HashMap<>();
+
+    AvailabilityIndex(List<Room> rooms, LocalDate baseDay) {
+        this.baseDay = baseDay;
+        words = (rooms.size() + 63) >>> 6;
+        occupied = new AtomicLongArray(Hotel.HORIZON_DAYS * words);
+        for (Room room : rooms) {
+            long[] mask = categoryMasks.computeIfAbsent(room.category, c -> new long[words]);
+            mask[room.slot >>> 6] |= 1L << room.slot;
+        }
+    }
+
+    /** Days from the base day to {@code date}. */
+    int offset(LocalDate date) {
+        return (int) ChronoUnit.DAYS.between(baseDay, date);
+    }
+
+    void mark(Room room, int from, int to, boolean booked) {
+        int w = room.slot >>> 6;
+        long bit = 1L << room.slot;
+        for (int day = from; day < to; day++) {
+            if (booked) occupied.getAndAccumulate(day * words + w, bit, (a, b) -> a | b);
+            else occupied.getAndAccumulate(day * words + w, bit, (a, b) -> a & ~b);
+        }
+    }
+
+    /** Returns the slot of the first room in the category with every night in [from, to) free, or -1. */
+    int firstFreeSlot(String category, int from, int to) {
+        BitSet free = freeSlots(category, from, to);
+        return free.nextSetBit(0);
+    }
+
+    /** Returns the slots of rooms in the category with every night in [from, to) free. */
+    BitSet freeSlots(String category, int from, int to) {
+        long[] mask = categoryMasks.get(category);
+        if (mask == null) return new BitSet();
+        long[] free = mask.clone();
+        for (int day = from; day < to; day++) {
+            long remaining = 0;
+            for (int w = 0; w < words; w++) {
+                free[w] &= ~occupied.get(day * words + w);
+                remaining |= free[w];
+            }
+            if (remaining == 0) break;
+        }
+        return BitSet.valueOf(free);
+    }
+}
@@ -0,0 +1,259 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+// --- Headless Server ---
+
+/**
+ * Serves the Hotel core over a local HTTP/JSON endpoint so external channel
+ * managers can book without the Swing front end.
+ *
+ *   POST   /reservations?name=&room=&checkIn=&checkOut=
+ *   DELETE /reservations?room=[&checkIn=]
+ *   GET    /availability?category=&from=&to=
+ *
+ * A malformed request or a stay outside the booking horizon answers 400, an
+ * unknown room 404, and a booking or cancellation the hotel refuses 409.
+ *
+ * Usage: java HotelServer [port]
+ */
+class HotelServer {
+    static final int DEFAULT_PORT = 8085;
+
+    final Hotel hotel;
+    final HttpServer server;
+
+    HotelServer(Hotel hotel, int port) throws IOException {
+        this.hotel = hotel;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/reservations", this::handleReservations);
+        server.createContext("/availability", this::handleAvailability);
+        server.setExecutor(requestExecutor());
+    }
+
+    /** Virtual threads when the runtime has them (JDK 21+), otherwise a cached platform pool. */
+    static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        hotel.shutdown();
+    }
+
+    private void handleReservations(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, String> params = queryParams(exchange);
+            String method = exchange.getRequestMethod();
+            String message;
+            if ("POST".equals(method)) {
+                String name = required(params, "name");
+                int room = Integer.parseInt(required(params, "room"));
+                LocalDate checkIn = LocalDate.parse(required(params, "checkIn"));
+                LocalDate checkOut = LocalDate.parse(required(params, "checkOut"));
+                if (!Hotel.isValidName(name)) throw new IllegalArgumentException("name contains control characters");
+                if (!hotel.isWithinHorizon(checkIn, checkOut)) {
+                    throw new IllegalArgumentException("stay must be at least one night within the next " + Hotel.HORIZON_DAYS + " days");
+                }
+                if (roomNotFound(exchange, room)) return;
+                message = hotel.makeReservation(name, room, checkIn, checkOut);
+            } else if ("DELETE".equals(method)) {
+                int room = Integer.parseInt(required(params, "room"));
+                String checkIn = params.get("checkIn");
+                LocalDate from = checkIn == null ? null : LocalDate.parse(checkIn);
+                if (roomNotFound(exchange, room)) return;
+                message = hotel.cancelReservation(room, from);
+            } else {
+                send(exchange, 405, "{\"ok\":false,\"message\":\"Method not allowed.\"}");
+                return;
+            }
+            boolean ok = !message.startsWith("Error");
+            send(exchange, ok ? 200 : 409, "{\"ok\":" + ok + ",\"message\":" + quote(message) + "}");
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            send(exchange, 400, "{\"ok\":false,\"message\":" + quote("Bad request: " + e.getMessage()) + "}");
+        }
+    }
+
+    private boolean roomNotFound(HttpExchange exchange, int room) throws IOException {
+        if (hotel.getRoomByNumber(room).isPresent()) return false;
+        send(exchange, 404, "{\"ok\":false,\"message\":" + quote("Room " + room + " not found.") + "}");
+        return true;
+    }
+
+    private void handleAvailability(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "{\"ok\":false,\"message\":\"Method not allowed.\"}");
+                return;
+            }
+            Map<String, String> params = queryParams(exchange);
+            String category = required(params, "category");
+            LocalDate from = LocalDate.parse(required(params, "from"));
+            LocalDate to = LocalDate.parse(required(params, "to"));
+            String rooms = hotel.findFreeRooms(category, from, to).stream()
+                    .map(room -> String.valueOf(room.roomNumber))
+                    .collect(Collectors.joining(","));
+            send(exchange, 200, "{\"ok\":true,\"category\":" + quote(category) + ",\"from\":\"" + from
+                    + "\",\"to\":\"" + to + "\",\"rooms\":[" + rooms + "]}");
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            send(exchange, 400, "{\"ok\":false,\"message\":" + quote("Bad request: " + e.getMessage()) + "}");
+        }
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String required(Map<String, String> params, String key) {
+        String value = params.get(key);
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException("missing " + key);
+        return value;
+    }
+
+    private static String quote(String s) {
+        StringBuilder json = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+                    else json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        HotelServer hotelServer = new HotelServer(new Hotel(), port);
+        Runtime.getRuntime().addShutdownHook(new Thread(hotelServer::stop));
+        hotelServer.start();
+        System.out.println("Hotel reservation service listening on http://localhost:" + port);
+    }
+}
+
+// --- Load Generator ---
+
+/**
+ * Drives a running HotelServer with a mix of availability queries, bookings
+ * and cancellations, then reports throughput and latency percentiles.
+ *
+ * Usage: java HotelLoadGenerator [port] [clients] [requestsPerClient]
+ */
+class HotelLoadGenerator {
+    static final String[] CATEGORIES = {"Standard", "Deluxe", "Suite"};
+    static final int[] ROOMS = {101, 102, 103, 104, 105, 106, 107, 108, 109, 110, 201, 202, 203, 204, 205, 301, 302, 303};
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : HotelServer.DEFAULT_PORT;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int perClient = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        String base = "http://localhost:" + port;
+        HttpClient http = HttpClient.newBuilder().executor(HotelServer.requestExecutor()).build();
+        LocalDate today = LocalDate.now();
+
+        long[][] latencies = new long[clients][perClient];
+        long[] failures = new long[clients];
+        ExecutorService pool = HotelServer.requestExecutor();
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            futures.add(pool.submit(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                for (int i = 0; i < perClient; i++) {
+                    LocalDate from = today.plusDays(rnd.nextInt(300));
+                    LocalDate to = from.plusDays(1 + rnd.nextInt(7));
+                    int room = ROOMS[rnd.nextInt(ROOMS.length)];
+                    HttpRequest request;
+                    int op = rnd.nextInt(10);
+                    if (op < 6) {
+                        request = HttpRequest.newBuilder(URI.create(base + "/availability?category="
+                                + CATEGORIES[rnd.nextInt(CATEGORIES.length)] + "&from=" + from + "&to=" + to)).GET().build();
+                    } else if (op < 9) {
+                        request = HttpRequest.newBuilder(URI.create(base + "/reservations?name=load" + client
+                                + "&room=" + room + "&checkIn=" + from + "&checkOut=" + to))
+                                .POST(HttpRequest.BodyPublishers.noBody()).build();
+                    } else {
+                        request = HttpRequest.newBuilder(URI.create(base + "/reservations?room=" + room + "&checkIn=" + from))
+                                .DELETE().build();
+                    }
+                    long t0 = System.nanoTime();
+                    try {
+                        int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (status >= 500 || status == 400) failures[client]++;
+                    } catch (IOException e) {
+                        failures[client]++;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    latencies[client][i] = System.nanoTime() - t0;
+                }
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        long failed = Arrays.stream(failures).sum();
+        System.out.printf("Requests: %d (%d failed) from %d clients in %.2f s%n", all.length, failed, clients, elapsed / 1e9);
+        System.out.printf("Throughput: %.0f req/s%n", all.length / (elapsed / 1e9));
+        System.out.printf("Latency p50: %.3f ms  p99: %.3f ms  max: %.3f ms%n",
+                percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, all[all.length - 1] / 1e6);
+    }
+
+    static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
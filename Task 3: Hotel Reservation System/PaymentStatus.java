@@ -0,0 +1,14 @@
+enum PaymentStatus {
+    PAID("Paid"), PENDING("Pending"), REFUNDED("Refunded");
+
+    final String label;
+
+    PaymentStatus(String label) {
+        this.label = label;
+    }
+
+    static PaymentStatus fromLabel(String label) {
+        for (PaymentStatus status : values()) if (status.label.equals(label)) return status;
+        throw new IllegalArgumentException("Unknown payment status: " + label);
+    }
+}
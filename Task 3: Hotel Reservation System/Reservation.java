@@ -0,0 +1,45 @@
+import java.time.LocalDate;
+
+class Reservation {
+    String name;
+    int roomNumber;
+    String category;
+    PaymentStatus paymentStatus;
+    LocalDate checkIn;
+    LocalDate checkOut; // exclusive: the guest leaves that morning
+
+    Reservation(String name, int roomNumber, String category, PaymentStatus paymentStatus, LocalDate checkIn, LocalDate checkOut) {
+        this.name = name;
+        this.roomNumber = roomNumber;
+        this.category = category;
+        this.paymentStatus = paymentStatus;
+        this.checkIn = checkIn;
+        this.checkOut = checkOut;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", name, String.valueOf(roomNumber), category, paymentStatus.label,
+                String.valueOf(checkIn), String.valueOf(checkOut));
+    }
+
+    /** Journal form: the name goes last so it may contain commas. */
+    String toRecord() {
+        return String.join(",", String.valueOf(roomNumber), category, paymentStatus.label,
+                String.valueOf(checkIn), String.valueOf(checkOut), name);
+    }
+
+    static Reservation fromRecord(String data) {
+        String[] parts = data.split(",", 6);
+        return new Reservation(parts[5], Integer.parseInt(parts[0]), parts[1], PaymentStatus.fromLabel(parts[2]),
+                LocalDate.parse(parts[3]), LocalDate.parse(parts[4]));
+    }
+
+    /** Parses both the dated format and the older four-field one, which leaves the dates null. */
+    public static Reservation fromString(String data) {
+        String[] parts = data.split(",");
+        LocalDate checkIn = parts.length > 5 ? LocalDate.parse(parts[4]) : null;
+        LocalDate checkOut = parts.length > 5 ? LocalDate.parse(parts[5]) : null;
+        return new Reservation(parts[0], Integer.parseInt(parts[1]), parts[2], PaymentStatus.fromLabel(parts[3]), checkIn, checkOut);
+    }
+}
@@ -0,0 +1,232 @@
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Append-only write-ahead journal of BOOK/CANCEL records. Each record is one
+ * line prefixed with a sequence number; commits are grouped so that callers
+ * waiting on the same fsync share it instead of each forcing the file.
+ * After a failed write or fsync the file may end in a torn or lost record, so
+ * the journal refuses every later append and commit with the same error.
+ */
+class ReservationJournal {
+    static final String BOOK = "BOOK";
+    static final String CANCEL = "CANCEL";
+
+    interface RecordHandler {
+        void apply(String type, String payload);
+    }
+
+    final File file;
+    final File rotatedFile;
+    final File rotatingFile; // the live file just moved aside, until its records are forced and folded into rotatedFile
+    private final Object commitLock = new Object();
+    private FileOutputStream out;
+    private FileOutputStream rotating; // still open on rotatingFile until finishRotate forces it
+    private long rotatingSeq; // last sequence number in rotatingFile
+    private Writer writer;
+    private long appendedSeq;
+    private long durableSeq;
+    private int recordsSinceRotate;
+    private volatile IOException failure;
+
+    ReservationJournal(String fileName, long lastSeq) throws IOException {
+        this.file = new File(fileName);
+        this.rotatedFile = new File(fileName + ".1");
+        this.rotatingFile = new File(fileName + ".rotating");
+        this.appendedSeq = lastSeq;
+        this.durableSeq = lastSeq;
+        foldRotating(); // left behind by a compaction that crashed; already replayed by the caller
+        open();
+    }
+
+    private void open() throws IOException {
+        out = new FileOutputStream(file, true);
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    synchronized long appendBook(Reservation res) throws IOException {
+        return append(BOOK + "," + res.toRecord());
+    }
+
+    /** Appends a whole batch under one monitor hold and returns the last sequence number. */
+    synchronized long appendBooks(List<Reservation> batch) throws IOException {
+        long seq = appendedSeq;
+        for (Reservation res : batch) seq = append(BOOK + "," + res.toRecord());
+        return seq;
+    }
+
+    /** A null check-in cancels every stay held on the room. */
+    synchronized long appendCancel(int roomNumber, LocalDate checkIn) throws IOException {
+        return append(CANCEL + "," + roomNumber + (checkIn == null ? "" : "," + checkIn));
+    }
+
+    private long append(String record) throws IOException {
+        checkHealthy();
+        long seq = appendedSeq + 1;
+        try {
+            writer.write(seq + "," + record + "\n");
+        } catch (IOException e) {
+            throw fail(e);
+        }
+        recordsSinceRotate++;
+        return appendedSeq = seq;
+    }
+
+    private void checkHealthy() throws IOException {
+        if (failure != null) throw new IOException("Journal unavailable after an earlier failure", failure);
+    }
+
+    private IOException fail(IOException e) {
+        if (failure == null) failure = e;
+        return e;
+    }
+
+    synchronized int recordsSinceRotate() {
+        return recordsSinceRotate;
+    }
+
+    /** Blocks until every record up to {@code seq} is on disk; throws if that can't be guaranteed. */
+    void commit(long seq) throws IOException {
+        synchronized (commitLock) {
+            if (durableSeq >= seq) return; // covered by another caller's fsync
+            checkHealthy();
+            try {
+                long target;
+                FileChannel channel;
+                FileOutputStream moved;
+                synchronized (this) {
+                    writer.flush();
+                    target = appendedSeq;
+                    channel = out.getChannel();
+                    moved = rotating;
+                }
+                // Records up to a rotation still pending its fsync live in the moved-aside file
+                if (moved != null) moved.getChannel().force(false);
+                channel.force(false);
+                durableSeq = target;
+            } catch (IOException e) {
+                throw fail(e);
+            }
+        }
+    }
+
+    /**
+     * First half of a rotation, cheap enough to run while every booking is
+     * locked out: flushes the live journal to the OS, renames it aside and
+     * starts a new one, without waiting for the disk. Returns the last
+     * sequence number in the moved file.
+     */
+    synchronized long beginRotate() throws IOException {
+        checkHealthy();
+        try {
+            writer.flush();
+            Files.move(file.toPath(), rotatingFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            rotating = out;
+            rotatingSeq = appendedSeq;
+            open();
+        } catch (IOException e) {
+            throw fail(e);
+        }
+        recordsSinceRotate = 0;
+        return appendedSeq;
+    }
+
+    /**
+     * Second half, run after the locks are released: forces the moved file
+     * and folds it into {@link #rotatedFile}, which then holds every record
+     * the next snapshot will cover.
+     */
+    void finishRotate() throws IOException {
+        synchronized (commitLock) {
+            FileOutputStream moved;
+            long cut;
+            synchronized (this) {
+                moved = rotating;
+                cut = rotatingSeq;
+            }
+            try {
+                moved.getChannel().force(false);
+                moved.close();
+            } catch (IOException e) {
+                throw fail(e);
+            }
+            synchronized (this) {
+                rotating = null;
+            }
+            durableSeq = Math.max(durableSeq, cut);
+        }
+        foldRotating();
+    }
+
+    private void foldRotating() throws IOException {
+        if (!rotatingFile.exists()) return;
+        try {
+            if (rotatedFile.exists()) {
+                // A previous compaction never finished: keep its records until a snapshot covers them
+                try (FileOutputStream rotated = new FileOutputStream(rotatedFile, true)) {
+                    Files.copy(rotatingFile.toPath(), rotated);
+                    rotated.getChannel().force(false);
+                }
+                Files.delete(rotatingFile.toPath());
+            } else {
+                Files.move(rotatingFile.toPath(), rotatedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            throw fail(e);
+        }
+    }
+
+    void discardRotated() throws IOException {
+        Files.deleteIfExists(rotatedFile.toPath());
+    }
+
+    synchronized void close() {
+        try {
+            writer.flush();
+            out.getChannel().force(false);
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Applies every record after {@code afterSeq} and returns the last sequence
+     * number seen. A torn or malformed tail left by a crash is truncated away.
+     */
+    static long replay(File file, long afterSeq, RecordHandler handler) throws IOException {
+        if (!file.exists()) return afterSeq;
+        byte[] data = Files.readAllBytes(file.toPath());
+        long lastSeq = afterSeq;
+        int lineStart = 0;
+        int validLength = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] != '\n') continue;
+            String line = new String(data, lineStart, i - lineStart, StandardCharsets.UTF_8);
+            String[] parts = line.split(",", 3);
+            long seq;
+            try {
+                seq = Long.parseLong(parts[0]);
+            } catch (NumberFormatException e) {
+                break;
+            }
+            if (parts.length < 3 || !(BOOK.equals(parts[1]) || CANCEL.equals(parts[1]))) break;
+            if (seq > afterSeq) handler.apply(parts[1], parts[2]);
+            lastSeq = Math.max(lastSeq, seq);
+            lineStart = i + 1;
+            validLength = lineStart;
+        }
+        if (validLength < data.length) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+        return lastSeq;
+    }
+}
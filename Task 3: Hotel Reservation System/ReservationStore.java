@@ -0,0 +1,156 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Binary snapshot of all reservations. Records are fixed-width and refer to
+ * names and categories by offset into a UTF-8 string pool at the end of the
+ * file, so a snapshot is read straight out of a memory-mapped buffer.
+ *
+ * Layout: header | category table | records | string pool
+ */
+class ReservationStore {
+    static final int MAGIC = 0x48525356; // "HRSV"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;   // magic, version, seq, record count, category count
+    static final int CATEGORY_SIZE = 8;  // pool offset, length
+    static final int RECORD_SIZE = 24;   // room, category id, status, pad, check-in, check-out, name offset, name length
+
+    interface ReservationHandler {
+        void accept(Reservation res);
+    }
+
+    /** Writes the snapshot to a temp file and renames it over the old one once it is on disk. */
+    static void write(File file, List<Reservation> reservations, long seq) throws IOException {
+        Map<String, Integer> categoryIds = new LinkedHashMap<>();
+        Map<String, int[]> pooled = new HashMap<>();
+        ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        for (Reservation r : reservations) {
+            categoryIds.putIfAbsent(r.category, categoryIds.size());
+            intern(pooled, pool, r.category);
+            intern(pooled, pool, r.name);
+        }
+
+        int poolStart = HEADER_SIZE + categoryIds.size() * CATEGORY_SIZE + reservations.size() * RECORD_SIZE;
+        ByteBuffer buf = ByteBuffer.allocate(poolStart);
+        buf.putInt(MAGIC).putInt(VERSION).putLong(seq).putInt(reservations.size()).putInt(categoryIds.size());
+        for (String category : categoryIds.keySet()) {
+            int[] ref = pooled.get(category);
+            buf.putInt(ref[0]).putInt(ref[1]);
+        }
+        for (Reservation r : reservations) {
+            int[] name = pooled.get(r.name);
+            buf.putInt(r.roomNumber)
+                    .putShort(categoryIds.get(r.category).shortValue())
+                    .put((byte) r.paymentStatus.ordinal())
+                    .put((byte) 0)
+                    .putInt((int) r.checkIn.toEpochDay())
+                    .putInt((int) r.checkOut.toEpochDay())
+                    .putInt(name[0])
+                    .putInt(name[1]);
+        }
+        buf.flip();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) channel.write(buf);
+            ByteBuffer poolBytes = ByteBuffer.wrap(pool.toByteArray());
+            while (poolBytes.hasRemaining()) channel.write(poolBytes);
+            channel.force(false);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void intern(Map<String, int[]> pooled, ByteArrayOutputStream pool, String s) {
+        if (pooled.containsKey(s)) return;
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        pooled.put(s, new int[]{pool.size(), bytes.length});
+        pool.write(bytes, 0, bytes.length);
+    }
+
+    /** Maps the snapshot, hands each reservation to the handler and returns its sequence number. */
+    static long load(File file, ReservationHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION)
+                throw new IOException("Not a reservation snapshot: " + file);
+            long seq = buf.getLong(8);
+            int count = buf.getInt(16);
+            int categoryCount = buf.getInt(20);
+            if (count < 0 || categoryCount < 0
+                    || HEADER_SIZE + (long) categoryCount * CATEGORY_SIZE + (long) count * RECORD_SIZE > buf.limit())
+                throw new IOException("Truncated reservation snapshot: " + file);
+            int recordsStart = HEADER_SIZE + categoryCount * CATEGORY_SIZE;
+            int poolStart = recordsStart + count * RECORD_SIZE;
+
+            String[] categories = new String[categoryCount];
+            for (int i = 0; i < categoryCount; i++) {
+                int at = HEADER_SIZE + i * CATEGORY_SIZE;
+                categories[i] = poolString(buf, poolStart + buf.getInt(at), buf.getInt(at + 4));
+            }
+            PaymentStatus[] statuses = PaymentStatus.values();
+            for (int i = 0; i < count; i++) {
+                int at = recordsStart + i * RECORD_SIZE;
+                handler.accept(new Reservation(
+                        poolString(buf, poolStart + buf.getInt(at + 16), buf.getInt(at + 20)),
+                        buf.getInt(at),
+                        categories[buf.getShort(at + 4)],
+                        statuses[buf.get(at + 6)],
+                        LocalDate.ofEpochDay(buf.getInt(at + 8)),
+                        LocalDate.ofEpochDay(buf.getInt(at + 12))));
+            }
+            return seq;
+        } catch (IndexOutOfBoundsException | NegativeArraySizeException | DateTimeException e) {
+            throw new IOException("Corrupt reservation snapshot: " + file, e);
+        }
+    }
+
+    private static String poolString(MappedByteBuffer buf, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buf.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One-shot conversion of the old comma-separated reservations.txt (with or
+     * without a "#seq=" header) into a binary snapshot.
+     */
+    static void convertTextSnapshot(File txt, File dat, LocalDate undatedFrom, LocalDate undatedTo) throws IOException {
+        List<Reservation> reservations = new ArrayList<>();
+        long seq = 0;
+        try (BufferedReader br = new BufferedReader(new FileReader(txt, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.startsWith(Hotel.SEQ_HEADER)) {
+                    seq = Long.parseLong(line.substring(Hotel.SEQ_HEADER.length()));
+                } else if (!line.isEmpty()) {
+                    Reservation res = Reservation.fromString(line);
+                    if (res.checkIn == null) {
+                        res.checkIn = undatedFrom;
+                        res.checkOut = undatedTo;
+                    }
+                    reservations.add(res);
+                }
+            }
+        }
+        write(dat, reservations, seq);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java ReservationStore <reservations.txt> <reservations.dat>");
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        convertTextSnapshot(new File(args[0]), new File(args[1]), today, today.plusDays(Hotel.HORIZON_DAYS));
+    }
+}
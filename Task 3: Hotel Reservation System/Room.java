@@ -0,0 +1,36 @@
+import java.util.*;
+
+class Room {
+    int roomNumber;
+    String category;
+    final int slot; // dense 0-based id used as the room's bit in the daily occupancy index
+    final long[] calendar = new long[(Hotel.HORIZON_DAYS + 63) >>> 6]; // one bit per night, guarded by the stripe lock
+    final List<Reservation> bookings = new ArrayList<>(); // sorted by check-in, guarded by the stripe lock
+
+    Room(int roomNumber, String category, int slot) {
+        this.roomNumber = roomNumber;
+        this.category = category;
+        this.slot = slot;
+    }
+
+    /** True when no night in [from, to) is taken; offsets are days from the hotel's base day. */
+    boolean isFree(int from, int to) {
+        for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) {
+            if ((calendar[w] & rangeMask(w, from, to)) != 0) return false;
+        }
+        return true;
+    }
+
+    void mark(int from, int to, boolean booked) {
+        for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) {
+            long mask = rangeMask(w, from, to);
+            calendar[w] = booked ? calendar[w] | mask : calendar[w] & ~mask;
+        }
+    }
+
+    private static long rangeMask(int word, int from, int to) {
+        int lo = Math.max(from - (word << 6), 0);
+        int hi = Math.min(to - (word << 6), 64);
+        return (hi == 64 ? -1L : (1L << hi) - 1) & (-1L << lo);
+    }
+}
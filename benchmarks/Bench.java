@@ -0,0 +1,71 @@
+import java.util.function.LongSupplier;
+
+/**
+ * Minimal benchmark harness shared by the per-application benchmarks. Each
+ * body is called repeatedly for timed warmup and measurement iterations and
+ * returns a checksum that is folded into a volatile sink so the JIT cannot
+ * discard the work.
+ *
+ * Tuning: -Dbench.warmup=3 -Dbench.iterations=5 -Dbench.iterationMillis=200
+ */
+final class Bench {
+    static final int WARMUP_ITERATIONS = Integer.getInteger("bench.warmup", 3);
+    static final int MEASURE_ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    static final long ITERATION_NANOS = Long.getLong("bench.iterationMillis", 200) * 1_000_000;
+
+    static volatile long sink;
+
+    private Bench() {
+    }
+
+    static void section(String title) {
+        System.out.println();
+        System.out.println("## " + title);
+        System.out.printf("%-58s %14s %10s %16s%n", "benchmark", "ns/op", "error", "ops/s");
+    }
+
+    /** Times {@code body}, where each call performs {@code opsPerCall} operations. */
+    static void run(String name, long opsPerCall, LongSupplier body) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) iteration(opsPerCall, body);
+        double[] samples = new double[MEASURE_ITERATIONS];
+        double mean = 0;
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            samples[i] = iteration(opsPerCall, body);
+            mean += samples[i];
+        }
+        mean /= MEASURE_ITERATIONS;
+        double variance = 0;
+        for (double s : samples) variance += (s - mean) * (s - mean);
+        double error = MEASURE_ITERATIONS > 1 ? Math.sqrt(variance / (MEASURE_ITERATIONS - 1)) : 0;
+        System.out.printf("%-58s %14.1f %10.1f %16.0f%n", name, mean, error, 1e9 / mean);
+    }
+
+    private static double iteration(long opsPerCall, LongSupplier body) {
+        long calls = 0;
+        long checksum = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            checksum += body.getAsLong();
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        sink += checksum;
+        return (double) elapsed / (calls * opsPerCall);
+    }
+
+    /** Retained heap per row of whatever {@code build} allocates, measured around full GCs. */
+    static void memory(String name, int rows, java.util.function.Supplier<Object> build) {
+        long before = usedHeap();
+        Object retained = build.get();
+        long after = usedHeap();
+        sink += System.identityHashCode(retained);
+        System.out.printf("%-58s %14.1f bytes/row%n", name, (double) (after - before) / rows);
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
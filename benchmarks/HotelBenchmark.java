@@ -0,0 +1,363 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Benchmarks for the reservation core at 10^3-10^5 rooms. Hotel persists to
+ * its working directory, so run this from a scratch directory (run.sh does).
+ */
+public class HotelBenchmark {
+    static final int[] SCALES = {1_000, 10_000, 100_000};
+    static final int GROUP_SIZE = 200;
+
+    /** A Hotel with {@code rooms} Standard rooms numbered from 1. */
+    static class ScaledHotel extends Hotel {
+        static int roomCount;
+
+        static ScaledHotel create(int rooms) {
+            roomCount = rooms;
+            return new ScaledHotel();
+        }
+
+        @Override
+        void initRooms() {
+            addRooms(1, roomCount, "Standard");
+        }
+    }
+
+    /** A ScaledHotel whose today() is set by the caller, to move the date forward. */
+    static class ClockedHotel extends ScaledHotel {
+        static LocalDate clock;
+
+        static ClockedHotel create(int rooms, LocalDate today) {
+            roomCount = rooms;
+            clock = today;
+            return new ClockedHotel();
+        }
+
+        @Override
+        LocalDate today() {
+            return clock;
+        }
+    }
+
+    static void resetFiles() throws IOException {
+        for (String f : new String[]{"reservations.dat", "reservations.txt", "reservations.journal", "reservations.journal.1", "reservations.journal.rotating"}) {
+            Files.deleteIfExists(Paths.get(f));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        lookups();
+        booking();
+        stress();
+        hostileNames();
+        dayChange();
+        corruptSnapshot();
+        loading();
+        resetFiles();
+    }
+
+    static void lookups() throws IOException {
+        Bench.section("Lookups: getRoomByNumber and findFreeRooms");
+        for (int n : SCALES) {
+            resetFiles();
+            ScaledHotel hotel = ScaledHotel.create(n);
+            LocalDate from = hotel.baseDay.plusDays(30);
+            List<BookingRequest> half = new ArrayList<>();
+            for (int room = 1; room <= n; room += 2) half.add(new BookingRequest("g", room, from, from.plusDays(3)));
+            hotel.makeReservations(half);
+            int[] probes = new Random(n).ints(1024, 1, n + 1).toArray();
+            Bench.run("getRoomByNumber rooms=" + n, probes.length, () -> {
+                long h = 0;
+                for (int p : probes) h += hotel.getRoomByNumber(p).get().slot;
+                return h;
+            });
+            Bench.run("findFreeRooms 7 nights rooms=" + n, 1, () -> hotel.findFreeRooms("Standard", from, from.plusDays(7)).size());
+            Bench.run("findFreeRoom any rooms=" + n, 1, () -> hotel.findFreeRoom("Standard").get().slot);
+            Bench.run("findFreeRoom 7 nights rooms=" + n, 1, () -> hotel.findFreeRoom("Standard", from, from.plusDays(7)).get().slot);
+            hotel.shutdown();
+        }
+    }
+
+    static void booking() throws IOException {
+        Bench.section("Booking: " + GROUP_SIZE + "-room group, per-item makeReservation vs makeReservations batch");
+        resetFiles();
+        int groups = 100;
+        ScaledHotel hotel = ScaledHotel.create(groups * GROUP_SIZE);
+        int[] next = {0};
+        Bench.run("group/perItem rooms=" + GROUP_SIZE, GROUP_SIZE, () -> {
+            int call = next[0]++;
+            int firstRoom = (call % groups) * GROUP_SIZE + 1;
+            LocalDate night = hotel.baseDay.plusDays(call / groups);
+            long ok = 0;
+            for (int i = 0; i < GROUP_SIZE; i++) {
+                String result = hotel.makeReservation("guest", firstRoom + i, night, night.plusDays(1));
+                if (result.startsWith("Error")) throw new IllegalStateException(result);
+                ok++;
+            }
+            return ok;
+        });
+        Bench.run("group/batch rooms=" + GROUP_SIZE, GROUP_SIZE, () -> {
+            int call = next[0]++;
+            int firstRoom = (call % groups) * GROUP_SIZE + 1;
+            LocalDate night = hotel.baseDay.plusDays(call / groups);
+            List<BookingRequest> group = new ArrayList<>(GROUP_SIZE);
+            for (int i = 0; i < GROUP_SIZE; i++) group.add(new BookingRequest("guest", firstRoom + i, night, night.plusDays(1)));
+            String result = hotel.makeReservations(group);
+            if (result.startsWith("Error")) throw new IllegalStateException(result);
+            return group.size();
+        });
+        hotel.shutdown();
+    }
+
+    /**
+     * Many threads book, batch-book and cancel the same few rooms over the same
+     * nights while compactions run. Every thread remembers what it was told it
+     * holds; afterwards the hotel, and the hotel reloaded from disk, must hold
+     * exactly those stays with no two overlapping on a room.
+     */
+    static void stress() throws Exception {
+        int threads = Integer.getInteger("stress.threads", 16);
+        int attempts = Integer.getInteger("stress.attempts", 20_000);
+        int roomCount = 32;
+        int nights = 20;
+        Bench.section("Stress: " + threads + " threads booking and cancelling " + roomCount + " rooms over " + nights + " nights");
+        resetFiles();
+        ScaledHotel hotel = ScaledHotel.create(roomCount);
+        LocalDate first = hotel.baseDay.plusDays(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Future<?> compactions = pool.submit(() -> {
+            while (running.get()) {
+                hotel.compact();
+                Thread.sleep(5);
+            }
+            return null;
+        });
+        long start = System.nanoTime();
+        List<Future<List<Reservation>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                List<Reservation> held = new ArrayList<>();
+                for (int i = 0; i < attempts / threads; i++) {
+                    String name = "t" + thread + "-" + i;
+                    int op = rnd.nextInt(10);
+                    if (op < 3 && !held.isEmpty()) {
+                        Reservation res = held.remove(rnd.nextInt(held.size()));
+                        String result = hotel.cancelReservation(res.roomNumber, res.checkIn);
+                        if (result.startsWith("Error")) throw new IllegalStateException("lost " + describe(res) + ": " + result);
+                    } else if (op < 5) {
+                        // Two rooms for the same nights, all or nothing
+                        LocalDate in = first.plusDays(rnd.nextInt(nights - 2));
+                        LocalDate out = in.plusDays(1 + rnd.nextInt(2));
+                        int a = 1 + rnd.nextInt(roomCount), b = 1 + rnd.nextInt(roomCount);
+                        List<BookingRequest> group = List.of(new BookingRequest(name + "a", a, in, out), new BookingRequest(name + "b", b, in, out));
+                        if (!hotel.makeReservations(group).startsWith("Error")) {
+                            held.add(new Reservation(name + "a", a, "Standard", PaymentStatus.PAID, in, out));
+                            held.add(new Reservation(name + "b", b, "Standard", PaymentStatus.PAID, in, out));
+                        }
+                    } else {
+                        int room = 1 + rnd.nextInt(roomCount);
+                        LocalDate in = first.plusDays(rnd.nextInt(nights - 3));
+                        LocalDate out = in.plusDays(1 + rnd.nextInt(3));
+                        if (!hotel.makeReservation(name, room, in, out).startsWith("Error")) {
+                            held.add(new Reservation(name, room, "Standard", PaymentStatus.PAID, in, out));
+                        }
+                    }
+                }
+                return held;
+            }));
+        }
+        List<Reservation> expected = new ArrayList<>();
+        long elapsed;
+        try {
+            for (Future<List<Reservation>> f : futures) expected.addAll(f.get());
+            elapsed = System.nanoTime() - start;
+            running.set(false);
+            compactions.get();
+        } finally {
+            running.set(false);
+            pool.shutdownNow();
+        }
+
+        System.out.printf("%-58s %.0f attempts/s%n", "stress/attempts=" + attempts, attempts / (elapsed / 1e9));
+        checkHeld("stress/live", hotel, expected, roomCount, nights);
+        hotel.shutdown();
+        ScaledHotel reloaded = ScaledHotel.create(roomCount);
+        checkHeld("stress/reloaded", reloaded, expected, roomCount, nights);
+        reloaded.shutdown();
+    }
+
+    // The hotel must hold exactly the expected stays, none overlapping, and its availability index must agree
+    static void checkHeld(String label, Hotel hotel, List<Reservation> expected, int roomCount, int nights) {
+        Comparator<Reservation> order = Comparator.<Reservation>comparingInt(r -> r.roomNumber).thenComparing(r -> r.checkIn);
+        List<Reservation> actual = new ArrayList<>(hotel.getReservations());
+        List<Reservation> wanted = new ArrayList<>(expected);
+        actual.sort(order);
+        wanted.sort(order);
+        for (int i = 0; i < Math.max(actual.size(), wanted.size()); i++) {
+            Reservation got = i < actual.size() ? actual.get(i) : null;
+            Reservation want = i < wanted.size() ? wanted.get(i) : null;
+            if (got == null || want == null || !describe(got).equals(describe(want))) {
+                throw new IllegalStateException(label + ": hotel holds " + (got == null ? "nothing" : describe(got))
+                        + " where the clients hold " + (want == null ? "nothing" : describe(want)));
+            }
+            if (i > 0 && got.roomNumber == actual.get(i - 1).roomNumber && got.checkIn.isBefore(actual.get(i - 1).checkOut)) {
+                throw new IllegalStateException(label + ": double-booked " + describe(actual.get(i - 1)) + " and " + describe(got));
+            }
+        }
+        Optional<Room> unbooked = hotel.findFreeRoom("Standard");
+        long roomsWithStays = actual.stream().mapToInt(r -> r.roomNumber).distinct().count();
+        if (unbooked.isPresent() ? actual.stream().anyMatch(r -> r.roomNumber == unbooked.get().roomNumber) : roomsWithStays != roomCount) {
+            throw new IllegalStateException(label + ": findFreeRoom gave " + unbooked.map(r -> r.roomNumber) + " with " + roomsWithStays + " rooms booked");
+        }
+        LocalDate first = hotel.baseDay.plusDays(1);
+        for (int night = 0; night < nights; night++) {
+            LocalDate day = first.plusDays(night);
+            int occupied = 0;
+            for (Reservation r : actual) if (!day.isBefore(r.checkIn) && day.isBefore(r.checkOut)) occupied++;
+            int free = hotel.findFreeRooms("Standard", day, day.plusDays(1)).size();
+            if (free + occupied != roomCount) {
+                throw new IllegalStateException(label + ": " + day + " has " + occupied + " stays but " + free + " of " + roomCount + " rooms free");
+            }
+        }
+        System.out.printf("%-58s %d stays, none lost, duplicated or overlapping%n", label, actual.size());
+    }
+
+    static String describe(Reservation r) {
+        return "room " + r.roomNumber + " " + r.checkIn + ".." + r.checkOut + " for " + r.name;
+    }
+
+    /**
+     * A guest name carrying a line break must not reach the journal, where
+     * replay would read the rest of the name as BOOK/CANCEL records of its own.
+     */
+    static void hostileNames() throws IOException {
+        Bench.section("Journal: guest names with line breaks");
+        resetFiles();
+        ScaledHotel hotel = ScaledHotel.create(4);
+        LocalDate in = hotel.baseDay.plusDays(1);
+        LocalDate out = in.plusDays(2);
+        String result = hotel.makeReservation("Alice", 1, in, out);
+        if (result.startsWith("Error")) throw new IllegalStateException(result);
+        List<Reservation> expected = List.of(new Reservation("Alice", 1, "Standard", PaymentStatus.PAID, in, out));
+        String hostile = "Mallory\n999,CANCEL,1\n1000,BOOK,3,Standard," + PaymentStatus.PAID.label + "," + in + "," + out + ",Eve";
+        if (!hotel.makeReservation(hostile, 2, in, out).startsWith("Error")) {
+            throw new IllegalStateException("journal/hostileName: booked a name with line breaks");
+        }
+        if (!hotel.makeReservations(List.of(new BookingRequest(hostile, 2, in, out))).startsWith("Error")) {
+            throw new IllegalStateException("journal/hostileName: batch-booked a name with line breaks");
+        }
+        checkHeld("journal/hostileName live", hotel, expected, 4, 3);
+        hotel.shutdown();
+        ScaledHotel reloaded = ScaledHotel.create(4);
+        checkHeld("journal/hostileName replayed", reloaded, expected, 4, 3);
+        reloaded.shutdown();
+    }
+
+    /**
+     * Once the date moves past a stay's check-out the stay is dropped: its room
+     * is unbooked again, and neither the live hotel nor one reloaded from the
+     * journal or from a snapshot still holds it.
+     */
+    static void dayChange() throws IOException {
+        Bench.section("Horizon: stays that have ended are dropped when the day changes");
+        resetFiles();
+        LocalDate day = LocalDate.now();
+        ClockedHotel hotel = ClockedHotel.create(4, day);
+        List<BookingRequest> stays = List.of(
+                new BookingRequest("Short", 1, day, day.plusDays(2)),
+                new BookingRequest("Long", 2, day, day.plusDays(5)),
+                new BookingRequest("Short", 3, day.plusDays(1), day.plusDays(3)),
+                new BookingRequest("Short", 4, day.plusDays(1), day.plusDays(3)));
+        String result = hotel.makeReservations(stays);
+        if (result.startsWith("Error")) throw new IllegalStateException(result);
+        if (hotel.findFreeRoom("Standard").isPresent()) throw new IllegalStateException("horizon: a booked room was offered as unbooked");
+
+        ClockedHotel.clock = day.plusDays(3);
+        hotel.rollHorizon();
+        List<Reservation> expected = List.of(new Reservation("Long", 2, "Standard", PaymentStatus.PAID, day, day.plusDays(5)));
+        checkHeld("horizon/rolled", hotel, expected, 4, 5);
+        hotel.shutdown();
+
+        ClockedHotel fromJournal = ClockedHotel.create(4, day.plusDays(3));
+        checkHeld("horizon/replayed", fromJournal, expected, 4, 5);
+        fromJournal.compact();
+        fromJournal.shutdown();
+        ClockedHotel fromSnapshot = ClockedHotel.create(4, day.plusDays(3));
+        checkHeld("horizon/snapshot", fromSnapshot, expected, 4, 5);
+        fromSnapshot.shutdown();
+    }
+
+    /**
+     * A snapshot that can't be read must stop the hotel from starting, not
+     * leave it running empty, and must be left on disk for recovery.
+     */
+    static void corruptSnapshot() throws IOException {
+        Bench.section("Startup: a corrupt snapshot refuses to start");
+        for (String damage : new String[]{"truncated", "garbage"}) {
+            resetFiles();
+            ScaledHotel hotel = ScaledHotel.create(16);
+            List<BookingRequest> stays = new ArrayList<>();
+            for (int room = 1; room <= 16; room++) stays.add(new BookingRequest("Guest " + room, room, hotel.baseDay.plusDays(1), hotel.baseDay.plusDays(2)));
+            String result = hotel.makeReservations(stays);
+            if (result.startsWith("Error")) throw new IllegalStateException(result);
+            hotel.compact();
+            hotel.shutdown();
+            Path snapshot = Paths.get(hotel.FILE_NAME);
+            byte[] bytes = Files.readAllBytes(snapshot);
+            byte[] damaged = damage.equals("truncated") ? Arrays.copyOf(bytes, bytes.length / 2) : "not a snapshot".getBytes(StandardCharsets.UTF_8);
+            Files.write(snapshot, damaged);
+            String refusal;
+            try {
+                ScaledHotel.create(16).shutdown();
+                throw new IllegalStateException("startup/" + damage + "Snapshot: hotel started without its reservations");
+            } catch (UncheckedIOException e) {
+                refusal = e.getCause().getMessage();
+            }
+            if (!Arrays.equals(Files.readAllBytes(snapshot), damaged))
+                throw new IllegalStateException("startup/" + damage + "Snapshot: the snapshot was overwritten");
+            System.out.printf("%-58s refused: %s%n", "startup/" + damage + "Snapshot", refusal);
+        }
+    }
+
+    static void loading() throws IOException {
+        Bench.section("Startup: loadReservationsFromFile from a compacted snapshot");
+        for (int n : SCALES) {
+            resetFiles();
+            ScaledHotel hotel = ScaledHotel.create(n);
+            List<BookingRequest> all = new ArrayList<>(n);
+            for (int room = 1; room <= n; room++) {
+                LocalDate from = hotel.baseDay.plusDays(room % 300);
+                all.add(new BookingRequest("Guest " + room, room, from, from.plusDays(1 + room % 5)));
+            }
+            hotel.makeReservations(all);
+            hotel.compact();
+            hotel.shutdown();
+            Bench.run("load reservations=" + n, n, () -> {
+                ScaledHotel loaded = ScaledHotel.create(n);
+                loaded.shutdown();
+                return loaded.rooms.size();
+            });
+        }
+    }
+}
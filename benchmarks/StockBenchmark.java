@@ -0,0 +1,827 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Benchmarks for the trading core: order execution on a User, the order
+ * book matching engine, and portfolio rendering as the number of held
+ * positions grows, plus TradeLedger append and replay, the paged
+ * history view, OHLCV bar aggregation, the backtester and the trigger
+ * engine. Also runs a property check that fixed-point money is exact
+ * and a concurrent stress check that trading between accounts conserves
+ * cash and shares.
+ */
+public class StockBenchmark {
+    static final int[] POSITIONS = {10, 1_000, 10_000, 100_000};
+
+    // The original double-based account, kept to show the drift fixed-point money avoids
+    static class LegacyUser {
+        double balance;
+        final Map<String, Integer> portfolio = new HashMap<>();
+
+        LegacyUser(double balance) {
+            this.balance = balance;
+        }
+
+        boolean buyStock(String symbol, double price, int quantity) {
+            double cost = price * quantity;
+            if (cost > balance) return false;
+            balance -= cost;
+            portfolio.put(symbol, portfolio.getOrDefault(symbol, 0) + quantity);
+            return true;
+        }
+
+        boolean sellStock(String symbol, double price, int quantity) {
+            int owned = portfolio.getOrDefault(symbol, 0);
+            if (quantity > owned) return false;
+            portfolio.put(symbol, owned - quantity);
+            balance += price * quantity;
+            return true;
+        }
+    }
+
+    static Map<String, Stock> market(int symbols) {
+        Map<String, Stock> stockMap = new HashMap<>();
+        for (int i = 0; i < symbols; i++) {
+            String symbol = "SYM" + i;
+            stockMap.put(symbol, new Stock(symbol, "Company " + i, Money.ofRupees(100 + i % 500)));
+        }
+        return stockMap;
+    }
+
+    public static void main(String[] args) throws Exception {
+        money();
+        trading();
+        matching();
+        stress();
+        portfolio();
+        ledger();
+        bars();
+        backtest();
+        triggers();
+    }
+
+    /**
+     * Fixed-point money. The property checks fail the run if they don't hold:
+     * Money.parse(Money.format(x)) == x, and a long random run of buys and
+     * sells at random prices leaves the balance exactly equal to an
+     * independently kept ledger of the same trades. The double-based legacy
+     * account doing the same trades is reported for comparison.
+     */
+    static void money() {
+        Bench.section("Money: long paise vs double rupees");
+        SplittableRandom rnd = new SplittableRandom(21);
+        for (int i = 0; i < 1_000_000; i++) {
+            long x = i < 1000 ? i - 500 : rnd.nextLong() / 100;
+            if (Money.parse(Money.format(x)) != x)
+                throw new IllegalStateException("format/parse round trip failed for " + x + ": " + Money.format(x));
+        }
+
+        int trades = 5_000_000;
+        Map<String, Stock> stockMap = market(8);
+        Stock[] stocks = stockMap.values().toArray(new Stock[0]);
+        long opening = Money.ofRupees(10_000_000);
+        User user = new User("property", opening);
+        LegacyUser legacy = new LegacyUser(Money.toRupees(opening));
+        long expected = opening;
+        for (int i = 0; i < trades; i++) {
+            Stock s = stocks[rnd.nextInt(stocks.length)];
+            s.price = 1 + rnd.nextInt(500_000); // 0.01 to 5000.00
+            int quantity = 1 + rnd.nextInt(100);
+            if (rnd.nextBoolean()) {
+                if (user.buyStock(s, quantity)) expected -= s.price * quantity;
+                legacy.buyStock(s.symbol, Money.toRupees(s.price), quantity);
+            } else {
+                if (user.sellStock(s, quantity)) expected += s.price * quantity;
+                legacy.sellStock(s.symbol, Money.toRupees(s.price), quantity);
+            }
+            if (user.transactionHistory.size() > 100_000) user.transactionHistory.clear();
+        }
+        if (user.balance != expected)
+            throw new IllegalStateException("balance drifted: " + user.balance + " != " + expected + " paise");
+        System.out.printf("%-58s exact after %d trades; double drifted by %.6f rupees%n", "money/conservation",
+                trades, Math.abs(legacy.balance - Money.toRupees(expected)));
+
+        int n = 1 << 16;
+        long[] prices = new long[n];
+        double[] rupees = new double[n];
+        int[] quantities = new int[n];
+        for (int i = 0; i < n; i++) {
+            prices[i] = 1 + rnd.nextInt(500_000);
+            rupees[i] = Money.toRupees(prices[i]);
+            quantities[i] = 1 + rnd.nextInt(100);
+        }
+        Bench.run("settle/double", n, () -> {
+            double balance = 1e12;
+            for (int i = 0; i < n; i++) {
+                double cost = rupees[i] * quantities[i];
+                if (cost <= balance) balance -= cost;
+                balance += rupees[(i + 1) & (n - 1)] * quantities[i];
+            }
+            return (long) balance;
+        });
+        Bench.run("settle/longPaise", n, () -> {
+            long balance = 100_000_000_000_000L;
+            for (int i = 0; i < n; i++) {
+                long cost = Money.times(prices[i], quantities[i]);
+                if (cost <= balance) balance -= cost;
+                balance += Money.times(prices[(i + 1) & (n - 1)], quantities[i]);
+            }
+            return balance;
+        });
+    }
+
+    static void trading() {
+        Bench.section("Trading: User.buyStock + sellStock round trip");
+        for (int n : new int[]{10, 10_000}) {
+            Map<String, Stock> stockMap = market(n);
+            Stock[] stocks = stockMap.values().toArray(new Stock[0]);
+            User user = new User("bench", Money.ofRupees(1e12));
+            int[] cursor = {0};
+            Bench.run("buyThenSell symbols=" + n, 2, () -> {
+                Stock s = stocks[cursor[0]++ % stocks.length];
+                boolean ok = user.buyStock(s, 10) & user.sellStock(s, 10);
+                if (user.transactionHistory.size() > 1_000_000) user.transactionHistory.clear();
+                return ok ? 1 : 0;
+            });
+        }
+
+        // Position bookkeeping alone: the old boxed map against the primitive table, after checking they agree
+        SplittableRandom rnd = new SplittableRandom(22);
+        Map<String, Stock> stockMap = market(1_000);
+        Stock[] stocks = stockMap.values().toArray(new Stock[0]);
+        Map<String, Integer> map = new HashMap<>();
+        PositionTable table = new PositionTable();
+        for (int i = 0; i < 2_000_000; i++) {
+            Stock s = stocks[rnd.nextInt(stocks.length)];
+            int delta = rnd.nextInt(-3, 4);
+            map.merge(s.symbol, delta, Integer::sum);
+            map.remove(s.symbol, 0);
+            table.add(s.id, delta);
+            if (i % 1000 == 0 || table.size() != map.size()) {
+                for (Stock t : stocks) {
+                    if (table.get(t.id) != map.getOrDefault(t.symbol, 0))
+                        throw new IllegalStateException("position table disagrees on " + t.symbol + " after " + i + " updates");
+                }
+            }
+        }
+        int[] cursor = {0};
+        Bench.run("positions/hashMap buyThenSell", 2, () -> {
+            String symbol = stocks[cursor[0]++ % stocks.length].symbol;
+            map.put(symbol, map.getOrDefault(symbol, 0) + 10);
+            int owned = map.getOrDefault(symbol, 0);
+            map.put(symbol, owned - 10);
+            return owned;
+        });
+        Bench.run("positions/table buyThenSell", 2, () -> {
+            int id = stocks[cursor[0]++ % stocks.length].id;
+            table.add(id, 10);
+            int owned = table.get(id);
+            table.add(id, -10);
+            return owned;
+        });
+    }
+
+    /**
+     * A stream of random orders around a 100.00 mid: 80% limit orders within
+     * 0.20 of the mid, 10% market orders and 10% cancels of earlier orders.
+     */
+    static final class OrderFlow {
+        final MatchingEngine engine;
+        final User[] users = new User[100];
+        final long[] recent = new long[1024];
+        final User[] recentOwners = new User[1024];
+        final SplittableRandom rnd = new SplittableRandom(42);
+        int submitted;
+
+        OrderFlow() {
+            Map<String, Stock> stockMap = market(1);
+            engine = new MatchingEngine(stockMap);
+            for (int i = 0; i < users.length; i++) {
+                users[i] = new User("trader" + i, Money.ofRupees(1e12));
+                users[i].portfolio.add(stockMap.get("SYM0").id, 1_000_000_000);
+            }
+        }
+
+        long next() {
+            User user = users[rnd.nextInt(users.length)];
+            if (user.transactionHistory.size() > 10_000) user.transactionHistory.clear();
+            Side side = rnd.nextBoolean() ? Side.BUY : Side.SELL;
+            int op = rnd.nextInt(10);
+            if (op == 0) {
+                int k = rnd.nextInt(recent.length);
+                return engine.cancel(recentOwners[k], "SYM0", recent[k]) ? 1 : 0;
+            }
+            OrderType type = op == 1 ? OrderType.MARKET : OrderType.LIMIT;
+            long id = engine.submit(user, "SYM0", side, type, 1 + rnd.nextInt(100), 10_000 + rnd.nextInt(-20, 21));
+            recentOwners[submitted & (recent.length - 1)] = user;
+            recent[submitted++ & (recent.length - 1)] = id;
+            return id;
+        }
+    }
+
+    static void matching() {
+        Bench.section("Matching: MatchingEngine order flow, one symbol, 100 traders");
+        OrderFlow flow = new OrderFlow();
+        Bench.run("orders/mixed", 1_000, () -> {
+            long h = 0;
+            for (int i = 0; i < 1_000; i++) h += flow.next();
+            return h;
+        });
+
+        // Per-order latency over one long run, timed individually
+        int n = 1_000_000;
+        long[] latencies = new long[n];
+        for (int i = 0; i < n; i++) {
+            long t0 = System.nanoTime();
+            Bench.sink += flow.next();
+            latencies[i] = System.nanoTime() - t0;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-58s p50 %d ns, p99 %d ns, p99.9 %d ns, max %d ns%n", "orders/latency n=" + n,
+                latencies[n / 2], latencies[(int) (n * 0.99)], latencies[(int) (n * 0.999)], latencies[n - 1]);
+    }
+
+    /**
+     * Hammers a TradingService from many threads with random orders between a
+     * small pool of accounts, so the same accounts are settled concurrently,
+     * then cancels everything left on the books and checks that total cash and
+     * total shares per symbol are exactly what the accounts started with.
+     * Every cancel is first tried from another account, which must fail.
+     *
+     * Tuning: -Dstress.threads=8 -Dstress.orders=2000000 -Dstress.accounts=64
+     */
+    static void stress() throws Exception {
+        int threads = Integer.getInteger("stress.threads", 8);
+        int orders = Integer.getInteger("stress.orders", 2_000_000);
+        int accountCount = Integer.getInteger("stress.accounts", 64);
+        Bench.section("Stress: concurrent trading between " + accountCount + " accounts on " + threads + " threads");
+
+        Map<String, Stock> stockMap = market(4);
+        String[] symbols = stockMap.keySet().toArray(new String[0]);
+        TradingService service = new TradingService(stockMap);
+        String[] names = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            names[i] = "acct" + i;
+            User user = service.openAccount(names[i], Money.ofRupees(1_000_000));
+            for (String symbol : symbols) user.portfolio.add(stockMap.get(symbol).id, 10_000);
+        }
+        long cashBefore = totalCash(service);
+        long[] sharesBefore = totalShares(service, stockMap, symbols);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        Future<?>[] futures = new Future<?>[threads];
+        for (int t = 0; t < threads; t++) {
+            futures[t] = pool.submit(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                for (int i = 0; i < orders / threads; i++) {
+                    String account = names[rnd.nextInt(names.length)];
+                    String symbol = symbols[rnd.nextInt(symbols.length)];
+                    Side side = rnd.nextBoolean() ? Side.BUY : Side.SELL;
+                    OrderType type = rnd.nextInt(10) == 0 ? OrderType.MARKET : OrderType.LIMIT;
+                    long mid = stockMap.get(symbol).price;
+                    long id = service.placeOrder(account, symbol, side, type, 1 + rnd.nextInt(50), mid + rnd.nextInt(-10, 11));
+                    if (id != MatchingEngine.REJECTED && rnd.nextInt(4) == 0) {
+                        String other = names[rnd.nextInt(names.length)];
+                        if (!other.equals(account) && service.cancelOrder(other, symbol, id))
+                            throw new IllegalStateException(other + " cancelled order " + id + " of " + account);
+                        service.cancelOrder(account, symbol, id);
+                    }
+                    if ((i & 0xFFFF) == 0) {
+                        User user = service.account(account);
+                        synchronized (user) {
+                            user.transactionHistory.clear();
+                        }
+                    }
+                }
+            });
+        }
+        for (Future<?> f : futures) f.get();
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        service.engine.cancelAll();
+
+        long cashAfter = totalCash(service);
+        long[] sharesAfter = totalShares(service, stockMap, symbols);
+        System.out.printf("%-58s %.0f orders/s%n", "stress/orders=" + orders, orders / (elapsed / 1e9));
+        if (cashAfter != cashBefore)
+            throw new IllegalStateException("cash not conserved: " + cashBefore + " -> " + cashAfter + " paise");
+        if (!Arrays.equals(sharesBefore, sharesAfter))
+            throw new IllegalStateException("shares not conserved: " + Arrays.toString(sharesBefore) + " -> " + Arrays.toString(sharesAfter));
+        System.out.printf("%-58s cash %d paise, shares %s%n", "stress/conserved", cashAfter, Arrays.toString(sharesAfter));
+    }
+
+    static long totalCash(TradingService service) {
+        long total = 0;
+        for (User user : service.accounts()) {
+            synchronized (user) {
+                total += user.balance + user.cashOnOrder;
+            }
+        }
+        return total;
+    }
+
+    static long[] totalShares(TradingService service, Map<String, Stock> stockMap, String[] symbols) {
+        long[] totals = new long[symbols.length];
+        for (User user : service.accounts()) {
+            synchronized (user) {
+                for (int i = 0; i < symbols.length; i++) totals[i] += user.portfolio.get(stockMap.get(symbols[i]).id);
+            }
+        }
+        return totals;
+    }
+
+    static void portfolio() {
+        Bench.section("Portfolio: incremental valuation and lazy User.getPortfolioString");
+        for (int n : POSITIONS) {
+            Map<String, Stock> stockMap = market(n);
+            User user = new User("bench", Money.ofRupees(1e12));
+            for (Stock s : stockMap.values()) user.buyStock(s, 1 + s.symbol.length());
+            Stock[] stocks = stockMap.values().toArray(new Stock[0]);
+            checkPositionOrder(user, stocks);
+            int[] cursor = {0};
+            Bench.run("onPrice positions=" + n, 1, () -> {
+                Stock s = stocks[cursor[0]++ % stocks.length];
+                user.onPrice(s, s.price + (cursor[0] & 1));
+                return cursor[0];
+            });
+            Bench.run("getPortfolioString unchanged positions=" + n, 1, () -> user.getPortfolioString().length());
+            Bench.run("getPortfolioString afterTick positions=" + n, 1, () -> {
+                Stock s = stocks[cursor[0]++ % stocks.length];
+                user.onPrice(s, s.price + (cursor[0] & 1));
+                return user.getPortfolioString().length();
+            });
+        }
+    }
+
+    /**
+     * Positions are listed in the order they were opened: selling out every
+     * other one and buying it back moves it to the end of the list.
+     */
+    static void checkPositionOrder(User user, Stock[] stocks) {
+        Set<Stock> expected = new LinkedHashSet<>(Arrays.asList(stocks));
+        for (int i = 0; i < stocks.length; i += 2) {
+            Stock s = stocks[i];
+            user.sellStock(s, user.valuation.position(s).quantity);
+            user.buyStock(s, 1 + s.symbol.length());
+            expected.remove(s);
+            expected.add(s);
+        }
+        List<Stock> listed = new ArrayList<>();
+        for (PortfolioValuation.Position p : user.valuation.positions()) listed.add(p.stock);
+        if (!listed.equals(new ArrayList<>(expected)) || user.valuation.size() != stocks.length)
+            throw new IllegalStateException("positions out of order or lost: " + listed.size() + " listed, " + stocks.length + " held");
+    }
+
+    static void ledger() throws IOException {
+        Bench.section("Ledger: TradeLedger append and replay");
+        Map<String, Stock> stockMap = market(16);
+        String[] symbols = stockMap.keySet().toArray(new String[0]);
+        Path dir = Files.createTempDirectory("ledger");
+        Path file = TradeLedger.fileFor(dir, "bench");
+        Path torn = TradeLedger.fileFor(dir, "torn");
+        Path failing = TradeLedger.fileFor(dir, "failing");
+        try {
+            checkTornLedger(dir, torn, stockMap);
+            checkFailedLedger(dir, failing, stockMap);
+            int n = 1_000_000;
+            TradeLedger ledger = new TradeLedger(file, null);
+            ledger.appendDeposit(Money.ofRupees(1e9));
+            Bench.run("ledger/append", 1_000, () -> {
+                try {
+                    for (int i = 0; i < 1_000; i++)
+                        ledger.appendTrade(Side.BUY, symbols[i & 15], 1, 10_000 + i, i);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return ledger.records();
+            });
+            ledger.close();
+            Files.delete(file);
+
+            try (TradeLedger fresh = new TradeLedger(file, null)) {
+                fresh.appendDeposit(Money.ofRupees(1e12));
+                for (int i = 0; i < n; i++)
+                    fresh.appendTrade((i & 1) == 0 ? Side.BUY : Side.SELL, symbols[(i >> 1) & 15], 10, 10_000 + i % 100, i);
+            }
+            long[] count = {0};
+            TradeLedger.Handler counter = new TradeLedger.Handler() {
+                public void deposit(long ticks, long epochNanos) {
+                    count[0]++;
+                }
+
+                public void trade(Side side, String symbol, int quantity, long priceTicks, long epochNanos, long record) {
+                    count[0] += quantity;
+                }
+            };
+            Bench.run("ledger/replay records=" + n, n, () -> {
+                try {
+                    return TradeLedger.replay(file, counter).size() + count[0];
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            Bench.run("ledger/rebuildAccount records=" + n, n, () -> {
+                try {
+                    User user = User.open("bench", 0, dir, stockMap);
+                    user.ledger.close();
+                    return user.history.size();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            // Opening the history view and formatting one screen of rows, as the GUI does
+            User account = User.open("bench", 0, dir, stockMap);
+            try {
+                int[] cursor = {0};
+                Bench.run("history/openAndRender 30 rows of " + n, 1, () -> {
+                    String symbol = (cursor[0]++ & 1) == 0 ? null : symbols[cursor[0] & 15];
+                    TradeHistory.View view = account.history.view(symbol, Long.MIN_VALUE, Long.MAX_VALUE);
+                    TradeHistoryTableModel model = new TradeHistoryTableModel(account, view);
+                    long h = 0;
+                    for (int row = 0; row < 30; row++)
+                        for (int col = 0; col < model.getColumnCount(); col++)
+                            h += model.getValueAt(row, col).hashCode();
+                    return h;
+                });
+                Bench.run("history/fullTextDump of " + n, 1, () -> {
+                    // The original showTransactions: every row formatted into one string
+                    TradeHistory.View all = account.history.view(null, Long.MIN_VALUE, Long.MAX_VALUE);
+                    StringBuilder sb = new StringBuilder();
+                    for (int row = 0; row < all.size(); row++)
+                        sb.append(account.historyRow(all.ref(row))).append("\n");
+                    return sb.length();
+                });
+            } finally {
+                account.ledger.close();
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(torn);
+            Files.deleteIfExists(failing);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    /**
+     * A ledger cut off inside its header holds no trades: opening the account
+     * must start it afresh with the opening deposit, which then survives a
+     * reopen.
+     */
+    static void checkTornLedger(Path dir, Path torn, Map<String, Stock> stockMap) throws IOException {
+        Files.write(torn, new byte[TradeLedger.HEADER_BYTES - 1]);
+        long opening = Money.ofRupees(10_000);
+        for (int pass = 0; pass < 2; pass++) {
+            User user = User.open("torn", opening, dir, stockMap);
+            user.ledger.close();
+            if (user.balance != opening || user.ledger.records() != 1)
+                throw new IllegalStateException("torn ledger opened with balance " + user.balance + " and "
+                        + user.ledger.records() + " records" + (pass == 1 ? " after reopening" : ""));
+        }
+    }
+
+    /**
+     * Once a ledger write fails the trade that hit it must leave cash and
+     * holdings as they were, and the account must refuse every later trade and
+     * order. The failure is injected by closing the file underneath the ledger,
+     * so the write that spills the full append buffer fails.
+     */
+    static void checkFailedLedger(Path dir, Path failing, Map<String, Stock> stockMap) throws IOException {
+        User user = User.open("failing", Money.ofRupees(1e12), dir, stockMap);
+        Stock stock = stockMap.values().iterator().next();
+        try {
+            Field channel = TradeLedger.class.getDeclaredField("channel");
+            channel.setAccessible(true);
+            ((FileChannel) channel.get(user.ledger)).close();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        boolean refused = false;
+        for (int i = 0; i < 10_000 && !refused; i++) {
+            long balance = user.balance;
+            int held = user.portfolio.get(stock.id);
+            int trades = user.history.size();
+            try {
+                user.buyStock(stock, 1);
+            } catch (UncheckedIOException e) {
+                refused = true;
+                if (user.balance != balance || user.portfolio.get(stock.id) != held || user.history.size() != trades)
+                    throw new IllegalStateException("failed ledger write still changed the account");
+            }
+        }
+        if (!refused || user.canTrade())
+            throw new IllegalStateException("ledger write failure went unnoticed");
+        try {
+            user.sellStock(stock, 1);
+            throw new IllegalStateException("account with a failed ledger still traded");
+        } catch (UncheckedIOException expected) {
+            // refused, as it should be
+        }
+        MatchingEngine engine = new MatchingEngine(stockMap);
+        if (engine.submit(user, stock.symbol, Side.SELL, OrderType.LIMIT, 1, stock.price) != MatchingEngine.REJECTED)
+            throw new IllegalStateException("account with a failed ledger still placed an order");
+        try {
+            user.ledger.close();
+        } catch (IOException expected) {
+            // the ledger reports the earlier failure
+        }
+    }
+
+    /**
+     * BarAggregator over a feed of 8 symbols, one tick every 10 ms. First
+     * checks that the 1s and 1m bars of one symbol, read back through the
+     * ring and the spill files and again after reopening, match bars
+     * recomputed from the raw ticks; then times ticks and range queries.
+     */
+    static void bars() throws IOException {
+        Bench.section("Bars: BarAggregator ticks and range queries");
+        Map<String, Stock> stockMap = market(8);
+        Stock[] stocks = stockMap.values().toArray(new Stock[0]);
+        Path dir = Files.createTempDirectory("bars");
+        long t0 = 1_700_000_000_000_000_000L;
+        long step = 10_000_000L;
+        try {
+            SplittableRandom rnd = new SplittableRandom(23);
+            BarAggregator bars = new BarAggregator(dir);
+            int ticks = 2_000_000;
+            long[][] expected = new long[2][];
+            Resolution[] checked = {Resolution.SECOND, Resolution.MINUTE};
+            long[] prices = new long[ticks];
+            long[] volumes = new long[ticks];
+            for (int i = 0; i < ticks; i++) {
+                Stock s = stocks[i % stocks.length];
+                prices[i] = 10_000 + rnd.nextInt(-500, 501);
+                bars.onPrice(s, prices[i], t0 + i * step);
+                if (rnd.nextInt(4) == 0) {
+                    volumes[i] = 1 + rnd.nextInt(100);
+                    bars.onTrade(s, null, null, (int) volumes[i], prices[i]);
+                }
+            }
+            // Expected bars of stocks[0]: start, open, high, low, close, volume per bucket
+            for (int r = 0; r < checked.length; r++) {
+                long period = checked[r].nanos;
+                int buckets = (int) ((ticks * step) / period) + 2;
+                long[] e = new long[buckets * 6];
+                long base = Math.floorDiv(t0, period) * period;
+                for (int i = 0; i < ticks; i += stocks.length) {
+                    int b = (int) ((t0 + i * step - base) / period) * 6;
+                    if (e[b + 1] == 0) {
+                        e[b] = base + (long) (b / 6) * period;
+                        e[b + 1] = e[b + 2] = e[b + 3] = prices[i];
+                    }
+                    e[b + 2] = Math.max(e[b + 2], prices[i]);
+                    e[b + 3] = Math.min(e[b + 3], prices[i]);
+                    e[b + 4] = prices[i];
+                    e[b + 5] += volumes[i];
+                }
+                expected[r] = e;
+            }
+            Bars out = new Bars();
+            for (int pass = 0; pass < 2; pass++) {
+                for (int r = 0; r < checked.length; r++) {
+                    bars.query(stocks[0], checked[r], Long.MIN_VALUE, Long.MAX_VALUE, out);
+                    long[] e = expected[r];
+                    int k = 0;
+                    for (int b = 0; b < e.length; b += 6) {
+                        if (e[b + 1] == 0) continue;
+                        if (k >= out.size || out.start[k] != e[b] || out.open[k] != e[b + 1] || out.high[k] != e[b + 2]
+                                || out.low[k] != e[b + 3] || out.close[k] != e[b + 4] || out.volume[k] != e[b + 5])
+                            throw new IllegalStateException(checked[r] + " bar " + k + " differs from the ticks" + (pass == 1 ? " after reopening" : ""));
+                        k++;
+                    }
+                    if (k != out.size)
+                        throw new IllegalStateException(checked[r] + ": " + out.size + " bars, expected " + k);
+                }
+                bars.close();
+                bars = new BarAggregator(dir);
+            }
+            System.out.printf("%-58s %d ticks match after spill and reopen%n", "bars/consistent", ticks);
+
+            BarAggregator live = bars;
+            long[] clock = {t0 + ticks * step};
+            Bench.run("bars/onPrice symbols=" + stocks.length, 1_000, () -> {
+                for (int i = 0; i < 1_000; i++)
+                    live.onPrice(stocks[i & 7], 10_000 + (i & 255), clock[0] += step);
+                return clock[0];
+            });
+            Stock s = stocks[0];
+            Bench.run("bars/query 100 x 1s from memory", 1, () -> {
+                long latest = live.latest(s, Resolution.SECOND);
+                return live.query(s, Resolution.SECOND, latest - 99 * Resolution.SECOND.nanos, latest + 1, out);
+            });
+            Bench.run("bars/query 10000 x 1s from file", 1, () ->
+                    live.query(s, Resolution.SECOND, t0, t0 + 10_000 * Resolution.SECOND.nanos, out));
+            live.close();
+        } finally {
+            try (java.util.stream.Stream<Path> files = Files.list(dir)) {
+                for (Path f : (Iterable<Path>) files::iterator)
+                    Files.delete(f);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Backtester over a generated tick file: one strategy on one thread, then
+     * the default sweep on a fork-join pool, which must give the same results
+     * as running the sweep one run at a time. A CSV converted to a tick file
+     * must read back tick for tick.
+     */
+    static void backtest() throws IOException {
+        Bench.section("Backtest: strategies over a memory-mapped tick file");
+        Path dir = Files.createTempDirectory("ticks");
+        Path file = dir.resolve("ticks.bin");
+        Path csv = dir.resolve("ticks.csv");
+        try {
+            checkReplayPrices(csv, dir.resolve("replayed.bin"));
+            long n = Backtester.generate(file, 2_000_000);
+            try (TickFile ticks = TickFile.open(file)) {
+                if (ticks.ticks != n)
+                    throw new IllegalStateException("generate reported " + n + " ticks but wrote " + ticks.ticks);
+                Backtester backtester = new Backtester(ticks, Money.ofRupees(10_000_000));
+                Backtester.Run crossover = new Backtester.Run("smaCross", () -> new MovingAverageCrossover(20, 200, 100));
+                checkTradeTimes(backtester);
+                Bench.run("backtest/smaCross ticks=" + n, n, () -> backtester.run(crossover).trades);
+
+                List<Backtester.Run> runs = Backtester.defaultRuns();
+                Backtester.Result[] sequential = new Backtester.Result[runs.size()];
+                for (int i = 0; i < runs.size(); i++) sequential[i] = backtester.run(runs.get(i));
+                ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                long start = System.nanoTime();
+                Backtester.Result[] parallel = backtester.runAll(runs, pool);
+                long elapsed = System.nanoTime() - start;
+                pool.shutdown();
+                for (int i = 0; i < runs.size(); i++) {
+                    if (parallel[i].equity != sequential[i].equity || parallel[i].trades != sequential[i].trades)
+                        throw new IllegalStateException(runs.get(i).name + " differs between parallel and sequential runs");
+                }
+                System.out.printf("%-58s %.1fM ticks/s over %d runs on %d threads%n", "backtest/sweep",
+                        runs.size() * n * 1e3 / elapsed, runs.size(), pool.getParallelism());
+
+                // CSV round trip: whole-paise prices and millisecond times survive conversion
+                try (java.io.BufferedWriter out = Files.newBufferedWriter(csv)) {
+                    ByteBuffer chunk = ticks.chunk(0);
+                    for (int i = 0; i < 100_000; i++) {
+                        int offset = i * TickFile.RECORD_BYTES;
+                        out.write(chunk.getLong(offset) / 1_000_000 + "," + ticks.symbols[chunk.getInt(offset + 8)]
+                                + "," + Money.format(chunk.getInt(offset + 12)) + "\n");
+                    }
+                }
+                Path converted = dir.resolve("converted.bin");
+                TickFile.convert(csv, converted);
+                try (TickFile back = TickFile.open(converted)) {
+                    ByteBuffer a = ticks.chunk(0), b = back.chunk(0);
+                    for (int i = 0; i < 100_000; i++) {
+                        int offset = i * TickFile.RECORD_BYTES;
+                        if (a.getLong(offset) / 1_000_000 * 1_000_000 != b.getLong(offset) || a.getInt(offset + 12) != b.getInt(offset + 12)
+                                || !ticks.symbols[a.getInt(offset + 8)].equals(back.symbols[b.getInt(offset + 8)]))
+                            throw new IllegalStateException("tick " + i + " changed in CSV conversion");
+                    }
+                }
+                Files.delete(converted);
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+
+    /** Replayed CSV ticks with a price of zero or less are skipped like malformed lines, live and when converted. */
+    static void checkReplayPrices(Path csv, Path converted) throws IOException {
+        Map<String, Stock> stockMap = market(2);
+        Files.write(csv, List.of("1000,SYM0,101.50", "1001,SYM0,0", "1002,SYM1,-5.00", "1003,SYM1,abc", "1004,SYM1,0.00", "1005,SYM1,99.25"));
+        List<Long> prices = new ArrayList<>();
+        ReplayPriceSource source = new ReplayPriceSource(csv, stockMap, 0);
+        PriceSource.Tick tick = new PriceSource.Tick();
+        while (source.next(tick)) prices.add(tick.price);
+        source.close();
+        if (!prices.equals(List.of(Money.parse("101.50"), Money.parse("99.25"))))
+            throw new IllegalStateException("replay passed on prices " + prices);
+        long written = TickFile.convert(csv, converted);
+        Files.delete(converted);
+        if (written != 2)
+            throw new IllegalStateException("conversion wrote " + written + " of 2 valid ticks");
+    }
+
+    /** Every backtest fill must be recorded at the time of the tick it traded on, not the wall clock. */
+    static void checkTradeTimes(Backtester backtester) {
+        int[] checked = {0};
+        backtester.run(new Backtester.Run("stamped", () -> new Strategy() {
+            final Strategy inner = new MovingAverageCrossover(20, 200, 100);
+
+            public void start(Stock[] stocks) {
+                inner.start(stocks);
+            }
+
+            public void onTick(int symbol, Stock stock, long epochNanos, User account) {
+                int before = account.history.size();
+                inner.onTick(symbol, stock, epochNanos, account);
+                if (account.history.size() == before) return;
+                long ref = account.history.view(null, Long.MIN_VALUE, Long.MAX_VALUE).ref(0);
+                long recorded = account.historyRow(ref).epochNanos;
+                if (recorded != epochNanos)
+                    throw new IllegalStateException("fill recorded at " + recorded + ", tick was at " + epochNanos);
+                checked[0]++;
+            }
+        }));
+        if (checked[0] == 0) throw new IllegalStateException("backtest made no trades to check");
+    }
+
+    /**
+     * TriggerEngine with 10,000 resting triggers on one symbol, against a
+     * scan of every trigger on every tick. A random walk first checks that
+     * the engine fires exactly the triggers the scan finds crossed, and that
+     * fired stop losses and take profits sold through the account.
+     */
+    static void triggers() {
+        Bench.section("Triggers: TriggerEngine vs scanning every trigger");
+        int n = 10_000;
+        Stock stock = market(1).get("SYM0");
+        long mid = stock.price;
+        SplittableRandom rnd = new SplittableRandom(25);
+
+        User user = new User("bench", Money.ofRupees(1e9));
+        user.portfolio.add(stock.id, 1_000_000);
+        TriggerEngine engine = new TriggerEngine();
+        java.util.Set<Long> fired = new java.util.HashSet<>();
+        engine.addListener((trigger, price, executed) -> {
+            if (trigger.side != null && !executed)
+                throw new IllegalStateException(trigger + " did not execute at " + price);
+            fired.add(trigger.id);
+        });
+        List<Trigger> resting = new java.util.ArrayList<>();
+        long price = mid;
+        int firedTotal = 0;
+        for (int t = 0; t < 20_000; t++) {
+            while (resting.size() < n) {
+                long level = price + rnd.nextInt(-20_000, 20_001);
+                Crossing crossing = rnd.nextBoolean() ? Crossing.AT_OR_ABOVE : Crossing.AT_OR_BELOW;
+                long id = rnd.nextInt(3) > 0 ? engine.addAlert(user, stock, crossing, level)
+                        : crossing == Crossing.AT_OR_ABOVE ? engine.addTakeProfit(user, stock, 1, level)
+                        : engine.addStopLoss(user, stock, 1, level);
+                resting.add(new Trigger(id, user, stock, crossing, level, null, 0));
+            }
+            price += rnd.nextInt(-200, 201);
+            stock.price = price;
+            fired.clear();
+            engine.onPrice(stock, price, t);
+            long p = price;
+            int before = resting.size();
+            resting.removeIf(r -> {
+                boolean crossed = r.crossing == Crossing.AT_OR_ABOVE ? p >= r.level : p <= r.level;
+                if (crossed != fired.contains(r.id))
+                    throw new IllegalStateException("trigger " + r.id + " at " + r.level + (crossed ? " not fired" : " fired") + " at " + p);
+                return crossed;
+            });
+            if (before - resting.size() != fired.size() || engine.size() != resting.size())
+                throw new IllegalStateException("fired " + fired.size() + " triggers, expected " + (before - resting.size()));
+            firedTotal += fired.size();
+        }
+        System.out.printf("%-58s %d fired over 20000 ticks, all as a scan finds them%n", "triggers/consistent", firedTotal);
+
+        // Timing: levels spread well away from the walk, so ticks fire nothing, as most do
+        TriggerEngine quiet = new TriggerEngine();
+        long[] levels = new long[n];
+        boolean[] up = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            up[i] = rnd.nextBoolean();
+            levels[i] = mid + (up[i] ? 1 : -1) * (10_000 + rnd.nextInt(10_000));
+            quiet.addAlert(user, stock, up[i] ? Crossing.AT_OR_ABOVE : Crossing.AT_OR_BELOW, levels[i]);
+        }
+        long[] tick = {mid};
+        Bench.run("triggers/onPrice engine n=" + n, 1, () -> {
+            tick[0] = mid + ((tick[0] - mid + 37) % 5_000);
+            quiet.onPrice(stock, tick[0], 0);
+            return tick[0];
+        });
+        Bench.run("triggers/onPrice scan n=" + n, 1, () -> {
+            tick[0] = mid + ((tick[0] - mid + 37) % 5_000);
+            long crossed = 0;
+            for (int i = 0; i < n; i++)
+                if (up[i] ? tick[0] >= levels[i] : tick[0] <= levels[i]) crossed++;
+            return crossed;
+        });
+        if (quiet.size() != n)
+            throw new IllegalStateException("a quiet tick fired a trigger");
+    }
+}
@@ -0,0 +1,328 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks for the grade tracker's non-Swing core: grading, statistics,
+ * order-statistics queries, the columnar store and CSV import/export.
+ */
+public class StudentBenchmark {
+    static final int[] SCALES = {1_000, 10_000, 100_000, 1_000_000};
+
+    // The original layout, kept here as the baseline for the columnar store
+    static class LegacyStudent {
+        String name;
+        double marks;
+
+        LegacyStudent(String name, double marks) {
+            this.name = name;
+            this.marks = marks;
+        }
+    }
+
+    // The original calculateGrade branch chain, kept as the baseline for the lookup table
+    static String branchChainGrade(double marks) {
+        if (marks >= 90) return "O";
+        if (marks >= 80) return "E";
+        if (marks >= 70) return "A";
+        if (marks >= 60) return "B";
+        if (marks >= 50) return "C";
+        if (marks >= 40) return "D";
+        return "F";
+    }
+
+    static double[] randomMarks(int n, long seed) {
+        Random rnd = new Random(seed);
+        double[] marks = new double[n];
+        for (int i = 0; i < n; i++) marks[i] = Math.round(rnd.nextGaussian() * 1500 + 6500) / 100.0;
+        for (int i = 0; i < n; i++) marks[i] = Math.max(0, Math.min(100, marks[i]));
+        return marks;
+    }
+
+    public static void main(String[] args) throws IOException {
+        grading();
+        statistics();
+        store();
+        csv();
+    }
+
+    static void grading() {
+        Bench.section("Grading: calculateGrade branch chain vs GradingScheme lookup table");
+        double[] marks = randomMarks(1 << 16, 1);
+        int mask = marks.length - 1;
+        StudentGradeManagerGUI.GradingScheme scheme = StudentGradeManagerGUI.GradingScheme.DEFAULT;
+        int[] cursor = {0};
+        checkGradeBoundaries(scheme);
+        Bench.run("grade/branchChain", 1024, () -> {
+            long h = 0;
+            int c = cursor[0];
+            for (int i = 0; i < 1024; i++) h += branchChainGrade(marks[(c + i) & mask]).charAt(0);
+            cursor[0] = c + 1024;
+            return h;
+        });
+        Bench.run("grade/lookupTable", 1024, () -> {
+            long h = 0;
+            int c = cursor[0];
+            for (int i = 0; i < 1024; i++) h += scheme.grade(marks[(c + i) & mask]).charAt(0);
+            cursor[0] = c + 1024;
+            return h;
+        });
+    }
+
+    // The lookup table and the index-built histogram must grade exactly like the branch chain, right up to each cut-off
+    static void checkGradeBoundaries(StudentGradeManagerGUI.GradingScheme scheme) {
+        ArrayList<Double> probes = new ArrayList<>();
+        for (int i = 0; i <= 100_000; i++) probes.add(i / 1000.0);
+        for (double cutoff : scheme.cutoffs) {
+            for (double d : new double[]{1e-12, 1e-9, 1e-6, 0.001, 0.004, 0.005, 0.009, 0.01}) {
+                probes.add(cutoff - d);
+                probes.add(cutoff + d);
+            }
+            probes.add(Math.nextDown(cutoff));
+        }
+        StudentGradeManagerGUI.GradeStatistics stats = new StudentGradeManagerGUI.GradeStatistics();
+        int[] expected = new int[scheme.letters.length];
+        for (double m : probes) {
+            if (m < 0 || m > 100) continue;
+            String want = branchChainGrade(m);
+            if (!scheme.grade(m).equals(want)) {
+                throw new IllegalStateException("grade(" + m + ") = " + scheme.grade(m) + ", branch chain gives " + want);
+            }
+            // Marks within the bucket epsilon below a cut-off can't be told apart by the index
+            boolean nearCutoff = false;
+            for (double cutoff : scheme.cutoffs) nearCutoff |= m < cutoff && cutoff - m < 1e-9;
+            if (nearCutoff) continue;
+            expected[scheme.band(m)]++;
+            stats.add("probe", m);
+        }
+        stats.applyScheme(scheme);
+        for (int band = 0; band < expected.length; band++) {
+            if (stats.gradeCount(band) != expected[band]) {
+                throw new IllegalStateException("histogram " + scheme.letters[band] + " = " + stats.gradeCount(band) + ", expected " + expected[band]);
+            }
+        }
+    }
+
+    // The store and statistics share one name pool, as in the GUI: emptying the statistics must not drop the store's names
+    static void checkSharedNames() {
+        StudentGradeManagerGUI.NamePool names = new StudentGradeManagerGUI.NamePool();
+        StudentGradeManagerGUI.ColumnarStudentStore store = new StudentGradeManagerGUI.ColumnarStudentStore(names);
+        StudentGradeManagerGUI.GradeStatistics stats = new StudentGradeManagerGUI.GradeStatistics(names);
+        store.add("A", 50);
+        stats.add("A", 50);
+        store.add("B", 70);
+        stats.add("B", 70);
+        stats.remove("A", 50);
+        store.remove(0);
+        stats.remove("B", 70); // editing B's marks empties the statistics for a moment
+        stats.add("B", 80);
+        store.setMarks(0, 80);
+        if (!store.name(0).equals("B") || !stats.topPerformers().equals(List.of("B")))
+            throw new IllegalStateException("shared names lost: store has " + store.name(0) + ", top " + stats.topPerformers());
+    }
+
+    // Random adds and removes, with every report query checked against a rescan of the same rows
+    static void checkStatistics() {
+        Random rnd = new Random(5);
+        StudentGradeManagerGUI.GradeStatistics stats = new StudentGradeManagerGUI.GradeStatistics();
+        ArrayList<LegacyStudent> rows = new ArrayList<>();
+        for (int op = 0; op < 20_000; op++) {
+            if (rows.isEmpty() || rnd.nextInt(3) > 0) {
+                // Few names and coarse marks, so ties and duplicate students are common
+                LegacyStudent s = new LegacyStudent("S" + rnd.nextInt(50), rnd.nextInt(400) / 4.0);
+                rows.add(s);
+                stats.add(s.name, s.marks);
+            } else {
+                LegacyStudent s = rows.remove(rnd.nextInt(rows.size()));
+                stats.remove(s.name, s.marks);
+            }
+            if (rows.isEmpty() || op % 97 != 0) continue;
+            ArrayList<LegacyStudent> sorted = new ArrayList<>(rows);
+            sorted.sort((x, y) -> Double.compare(y.marks, x.marks));
+            double hi = sorted.get(0).marks, lo = sorted.get(sorted.size() - 1).marks;
+            ArrayList<String> top = new ArrayList<>(), bottom = new ArrayList<>();
+            for (LegacyStudent s : rows) {
+                if (s.marks == hi) top.add(s.name);
+                if (s.marks == lo) bottom.add(s.name);
+            }
+            ArrayList<String> gotTop = new ArrayList<>(stats.topPerformers()), gotBottom = new ArrayList<>(stats.bottomPerformers());
+            top.sort(null);
+            bottom.sort(null);
+            gotTop.sort(null);
+            gotBottom.sort(null);
+            if (stats.count() != rows.size() || stats.highest() != hi || stats.lowest() != lo || !gotTop.equals(top) || !gotBottom.equals(bottom)) {
+                throw new IllegalStateException("statistics: op " + op + " highest " + stats.highest() + "/" + hi + " lowest " + stats.lowest() + "/" + lo
+                        + " top " + gotTop + "/" + top + " bottom " + gotBottom + "/" + bottom);
+            }
+            List<String> topK = stats.topK(10);
+            for (int i = 0; i < Math.min(10, sorted.size()); i++) {
+                String want = String.format("(%.2f)", sorted.get(i).marks);
+                if (!topK.get(i).endsWith(want)) {
+                    throw new IllegalStateException("statistics: op " + op + " topK " + topK + " at " + i + ", expected marks " + want);
+                }
+            }
+        }
+    }
+
+    static void statistics() {
+        Bench.section("Statistics: incremental GradeStatistics vs full rescan report");
+        checkStatistics();
+        checkSharedNames();
+        for (int n : SCALES) {
+            double[] marks = randomMarks(n, n);
+            String[] names = new String[n];
+            for (int i = 0; i < n; i++) names[i] = "Student" + i;
+
+            Bench.run("statistics/add n=" + n, n, () -> {
+                StudentGradeManagerGUI.GradeStatistics stats = new StudentGradeManagerGUI.GradeStatistics();
+                for (int i = 0; i < n; i++) stats.add(names[i], marks[i]);
+                return stats.count();
+            });
+
+            StudentGradeManagerGUI.GradeStatistics stats = new StudentGradeManagerGUI.GradeStatistics();
+            StudentGradeManagerGUI.ColumnarStudentStore store = new StudentGradeManagerGUI.ColumnarStudentStore();
+            for (int i = 0; i < n; i++) {
+                stats.add(names[i], marks[i]);
+                store.add(names[i], marks[i]);
+            }
+            Bench.run("report/incremental n=" + n, 1, () -> {
+                double h = stats.average() + stats.standardDeviation() + stats.highest() + stats.lowest()
+                        + stats.median() + stats.percentile(90) + stats.rank(marks[0]);
+                return (long) h + stats.topK(5).size();
+            });
+            // Listing everyone on the highest and lowest marks costs one lookup per name listed
+            Bench.run("report/performers n=" + n, 1, () -> stats.topPerformers().size() + stats.bottomPerformers().size());
+            Bench.run("report/rescan n=" + n, 1, () -> {
+                // The original generateReport: one pass for total/min/max, then two filter passes
+                double total = 0, highest = -1, lowest = 101;
+                for (int i = 0; i < store.size(); i++) {
+                    double m = store.marks(i);
+                    total += m;
+                    if (m > highest) highest = m;
+                    if (m < lowest) lowest = m;
+                }
+                ArrayList<String> top = new ArrayList<>();
+                ArrayList<String> bottom = new ArrayList<>();
+                for (int i = 0; i < store.size(); i++) if (store.marks(i) == highest) top.add(store.name(i));
+                for (int i = 0; i < store.size(); i++) if (store.marks(i) == lowest) bottom.add(store.name(i));
+                return (long) (total / store.size()) + top.size() + bottom.size();
+            });
+        }
+    }
+
+    static void store() {
+        Bench.section("Store: ArrayList<Student> vs ColumnarStudentStore");
+        int n = 1_000_000;
+        double[] marks = randomMarks(n, 7);
+        Bench.memory("memory/arrayList distinctNames n=" + n, n, () -> {
+            ArrayList<LegacyStudent> list = new ArrayList<>();
+            for (int i = 0; i < n; i++) list.add(new LegacyStudent("Student" + i, marks[i]));
+            return list;
+        });
+        Bench.memory("memory/columnar distinctNames n=" + n, n, () -> {
+            StudentGradeManagerGUI.ColumnarStudentStore store = new StudentGradeManagerGUI.ColumnarStudentStore();
+            for (int i = 0; i < n; i++) store.add("Student" + i, marks[i]);
+            return store;
+        });
+        Bench.memory("memory/arrayList 5000Names n=" + n, n, () -> {
+            ArrayList<LegacyStudent> list = new ArrayList<>();
+            for (int i = 0; i < n; i++) list.add(new LegacyStudent("Student" + (i % 5000), marks[i]));
+            return list;
+        });
+        Bench.memory("memory/columnar 5000Names n=" + n, n, () -> {
+            StudentGradeManagerGUI.ColumnarStudentStore store = new StudentGradeManagerGUI.ColumnarStudentStore();
+            for (int i = 0; i < n; i++) store.add("Student" + (i % 5000), marks[i]);
+            return store;
+        });
+
+        // Statistics share the store's name pool, so only their own per-row structures count here
+        StudentGradeManagerGUI.NamePool pool = new StudentGradeManagerGUI.NamePool();
+        StudentGradeManagerGUI.ColumnarStudentStore pooled = new StudentGradeManagerGUI.ColumnarStudentStore(pool);
+        for (int i = 0; i < n; i++) pooled.add("Student" + i, marks[i]);
+        Bench.memory("memory/statistics distinctNames n=" + n, n, () -> {
+            StudentGradeManagerGUI.GradeStatistics stats = new StudentGradeManagerGUI.GradeStatistics(pool);
+            for (int i = 0; i < n; i++) stats.add(pooled.name(i), pooled.marks(i));
+            return stats;
+        });
+        pooled.clear();
+
+        ArrayList<LegacyStudent> list = new ArrayList<>();
+        StudentGradeManagerGUI.ColumnarStudentStore store = new StudentGradeManagerGUI.ColumnarStudentStore();
+        for (int i = 0; i < n; i++) {
+            list.add(new LegacyStudent("Student" + i, marks[i]));
+            store.add("Student" + i, marks[i]);
+        }
+        Bench.run("scanMarks/arrayList n=" + n, n, () -> {
+            double sum = 0;
+            for (LegacyStudent s : list) sum += s.marks;
+            return (long) sum;
+        });
+        Bench.run("scanMarks/columnar n=" + n, n, () -> {
+            double sum = 0;
+            for (int i = 0; i < store.size(); i++) sum += store.marks(i);
+            return (long) sum;
+        });
+    }
+
+    static void csv() throws IOException {
+        Bench.section("CSV: parallel import and streaming export");
+        int n = 1_000_000;
+        double[] marks = randomMarks(n, 11);
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) names[i] = "Student" + i;
+        Path file = Files.createTempFile("marks", ".csv");
+        Path out = Files.createTempFile("export", ".csv");
+        try {
+            StudentGradeManagerGUI.StudentCsv.write(file, names, marks, StudentGradeManagerGUI.GradingScheme.DEFAULT);
+            checkRoundTrip(file, names, marks);
+            Bench.run("csv/import rows=" + n, n, () -> {
+                try {
+                    return StudentGradeManagerGUI.StudentCsv.read(file, (done, total) -> { }).names.size();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            Bench.run("csv/export rows=" + n, n, () -> {
+                try {
+                    StudentGradeManagerGUI.StudentCsv.write(out, names, marks, StudentGradeManagerGUI.GradingScheme.DEFAULT);
+                    return Files.size(out);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(out);
+        }
+    }
+
+    // Importing what export wrote must give back every row unchanged, including awkward names
+    static void checkRoundTrip(Path exported, String[] names, double[] marks) throws IOException {
+        StudentGradeManagerGUI.StudentCsv.ImportResult result = StudentGradeManagerGUI.StudentCsv.read(exported, (done, total) -> { });
+        if (result.rejected != 0 || result.names.size() != names.length) {
+            throw new IllegalStateException("round trip: imported=" + result.names.size() + " rejected=" + result.rejected + " " + result.errors);
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (!result.names.get(i).equals(names[i]) || result.marks[i] != marks[i]) {
+                throw new IllegalStateException("round trip: row " + i + " came back as " + result.names.get(i) + "," + result.marks[i]);
+            }
+        }
+
+        String[] odd = {"Doe, John", "O\"Brien", "\"Quoted\"", "Plain"};
+        double[] oddMarks = {89.995, 0, 100, 39.99};
+        Path file = Files.createTempFile("roundtrip", ".csv");
+        try {
+            StudentGradeManagerGUI.StudentCsv.write(file, odd, oddMarks, StudentGradeManagerGUI.GradingScheme.DEFAULT);
+            result = StudentGradeManagerGUI.StudentCsv.read(file, (done, total) -> { });
+            if (result.rejected != 0 || !result.names.equals(Arrays.asList(odd)) || !Arrays.equals(result.marks, oddMarks)) {
+                throw new IllegalStateException("round trip: " + result.names + " " + Arrays.toString(result.marks) + " " + result.errors);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+#!/usr/bin/env bash
+# Compiles each application together with its benchmark and runs it from a
+# scratch working directory.
+#
+# Usage: benchmarks/run.sh [student] [stock] [hotel]   (default: all three)
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+OUT="$ROOT/benchmarks/out"
+
+run() {
+    local name="$1" src="$2" main="$3"
+    mkdir -p "$OUT/$name"
+    javac -Xlint:all -d "$OUT/$name" "$ROOT/$src"/*.java "$ROOT/benchmarks/Bench.java" "$ROOT/benchmarks/$main.java"
+    local work
+    work="$(mktemp -d)"
+    (cd "$work" && java ${JAVA_OPTS:-} -cp "$OUT/$name" "$main")
+    rm -rf "$work"
+}
+
+targets=("$@")
+[ ${#targets[@]} -eq 0 ] && targets=(student stock hotel)
+for target in "${targets[@]}"; do
+    case "$target" in
+        student) run student "Task 1: Student Grade Tracker" StudentBenchmark ;;
+        stock)   run stock "Task 2: Stock Trading Platform" StockBenchmark ;;
+        hotel)   run hotel "Task 3: Hotel Reservation System" HotelBenchmark ;;
+        *) echo "Unknown benchmark: $target" >&2; exit 1 ;;
+    esac
+done